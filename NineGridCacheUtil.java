@@ -0,0 +1,88 @@
+package com.realcloud.view;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Created by zack on 2018/12/7.
+ * 磁盘缓存公用方法，图片缓存和视频缓存共用
+ */
+
+public final class NineGridCacheUtil {
+
+    //按最近使用时间排序，最久没有使用的在前
+    private static final Comparator<File> LAST_MODIFIED_COMPARATOR = new Comparator<File>() {
+        @Override
+        public int compare(File o1, File o2) {
+            long diff = o1.lastModified() - o2.lastModified();
+            return diff < 0 ? -1 : (diff == 0 ? 0 : 1);
+        }
+    };
+
+    private NineGridCacheUtil() {
+    }
+
+    /**
+     * 获取url对应的缓存key
+     * @param url 地址
+     * @return url的md5
+     */
+    public static String getKey(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(url.getBytes());
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+                builder.append(Character.forDigit(b & 0xf, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return String.valueOf(url.hashCode());
+        }
+    }
+
+    /**
+     * 目录下所有文件的总大小
+     */
+    public static long getSize(File directory) {
+        File[] files = directory.listFiles();
+        long totalSize = 0;
+        if (files != null) {
+            for (File file : files) {
+                totalSize += file.length();
+            }
+        }
+        return totalSize;
+    }
+
+    /**
+     * 删除最久没有使用的文件直到总大小不超过限制
+     * @param directory 缓存目录
+     * @param maxSize 删除后的最大字节数
+     * @param keepFilter 返回true的文件不删除，可以为空
+     * @return 删除后的总大小
+     */
+    public static long trim(File directory, long maxSize, FilenameFilter keepFilter) {
+        File[] files = directory.listFiles();
+        if (files == null) return 0;
+        long totalSize = 0;
+        for (File file : files) {
+            totalSize += file.length();
+        }
+        if (totalSize <= maxSize) return totalSize;
+        Arrays.sort(files, LAST_MODIFIED_COMPARATOR);
+        for (File file : files) {
+            if (totalSize <= maxSize) break;
+            if (keepFilter != null && keepFilter.accept(directory, file.getName())) continue;
+            long length = file.length();
+            if (file.delete()) {
+                totalSize -= length;
+            }
+        }
+        return totalSize;
+    }
+}
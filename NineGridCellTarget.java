@@ -0,0 +1,75 @@
+package com.realcloud.view;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+
+/**
+ * Created by zack on 2018/12/7.
+ * 扁平模式下的格子
+ * 不是view，只保存要绘制的Drawable，由NineGridView在onDraw中统一绘制
+ * 只能在主线程调用
+ */
+
+public class NineGridCellTarget {
+
+    private final NineGridView<?> mParent; //所在的九宫格
+
+    private final int mIndex; //格子位置
+
+    private int mWidth; //格子宽度
+
+    private int mHeight; //格子高度
+
+    private Drawable mDrawable; //展示的图片
+
+    NineGridCellTarget(NineGridView<?> parent, int index) {
+        mParent = parent;
+        mIndex = index;
+    }
+
+    /**
+     * 设置展示的图片，按centerCrop绘制
+     * @param drawable 图片，为空时清空
+     */
+    public void setDrawable(Drawable drawable) {
+        if (mDrawable == drawable) return;
+        if (mDrawable != null) {
+            mDrawable.setCallback(null);
+        }
+        mDrawable = drawable;
+        if (drawable != null) {
+            drawable.setCallback(mParent);
+        }
+        mParent.invalidate();
+    }
+
+    /**
+     * 设置展示的图片
+     * @param bitmap 图片，为空时清空
+     */
+    public void setBitmap(Bitmap bitmap) {
+        setDrawable(bitmap != null ? new BitmapDrawable(mParent.getResources(), bitmap) : null);
+    }
+
+    public Drawable getDrawable() {
+        return mDrawable;
+    }
+
+    public int getIndex() {
+        return mIndex;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    void setSize(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+    }
+}
@@ -14,7 +14,7 @@ public interface NineGridClickAdapter<T> {
     /**
      * 点击事件
      * @param position 点击position
-     * @param data 当前九宫图所有数据
+     * @param data 当前九宫图所有数据，只读，不能修改
      * @param imageView 当前点击的view
      */
     void onImageClick(int position, List<T> data, ImageView imageView);
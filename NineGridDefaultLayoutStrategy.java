@@ -0,0 +1,63 @@
+package com.realcloud.view;
+
+/**
+ * Created by zack on 2018/12/7.
+ * 默认的九宫格布局规则
+ * 一张图：展示宽度为控件宽度，高度为控件宽度的正方形
+ * 两张、四张图：每行两张
+ * 其余：每行三张，二、三张一行，五、六张两行，其余高度为控件宽度
+ */
+
+public class NineGridDefaultLayoutStrategy implements NineGridLayoutStrategy {
+
+    public static final NineGridDefaultLayoutStrategy INSTANCE = new NineGridDefaultLayoutStrategy();
+
+    @Override
+    public int getMaxCount() {
+        return NineGridView.DEFAULT_MAX_IMAGE;
+    }
+
+    @Override
+    public int getHeight(int count, int width, int gap, int paddingLeft, int paddingTop, int paddingRight, int paddingBottom) {
+        int totalWidth = width - paddingLeft - paddingRight;
+        int height;
+        switch (count) {
+            case 2:
+                height = (totalWidth - gap) / 2;
+                break;
+            case 3:
+                height = (totalWidth - 2 * gap) / 3;
+                break;
+            case 5:
+            case 6:
+                height = (totalWidth - 2 * gap) / 3 * 2 + gap;
+                break;
+            default:
+                height = width - paddingTop - paddingBottom;
+                break;
+        }
+        return height + paddingTop + paddingBottom;
+    }
+
+    @Override
+    public void getCellRects(int count, int width, int gap, int paddingLeft, int paddingTop, int paddingRight, int paddingBottom, int[] outRects) {
+        if (count == 1) {
+            outRects[0] = paddingLeft;
+            outRects[1] = paddingTop;
+            outRects[2] = width - paddingRight;
+            outRects[3] = width - paddingBottom;
+            return;
+        }
+        int totalWidth = width - paddingLeft - paddingRight;
+        int columns = (count == 2 || count == 4) ? 2 : 3;
+        int imageWidth = (totalWidth - (columns - 1) * gap) / columns;
+        for (int i = 0; i < count; i++) {
+            int left = paddingLeft + (i % columns) * (imageWidth + gap);
+            int top = paddingTop + (i / columns) * (imageWidth + gap);
+            outRects[i * 4] = left;
+            outRects[i * 4 + 1] = top;
+            outRects[i * 4 + 2] = left + imageWidth;
+            outRects[i * 4 + 3] = top + imageWidth;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.realcloud.view;
+
+/**
+ * Created by zack on 2018/12/7.
+ * 九宫格布局几何表
+ * 按布局规则、宽度、间隔、padding缓存每种图片数量的高度和每个格子的位置
+ * 只有在参数变化时才重新计算，measure和layout都直接读取数组
+ */
+
+final class NineGridGeometry {
+
+    private NineGridLayoutStrategy mStrategy; //当前缓存对应的布局规则
+
+    private int mWidth = -1; //当前缓存对应的宽度
+
+    private int mGap;
+
+    private int mPaddingLeft;
+
+    private int mPaddingTop;
+
+    private int mPaddingRight;
+
+    private int mPaddingBottom;
+
+    //下标为图片数量，对应的测量高度（包含padding）
+    private int[] mHeights;
+
+    //下标为图片数量，每个格子依次存放left,top,right,bottom
+    private int[][] mCellRects;
+
+    /**
+     * 参数变化时重新计算几何表
+     * @return 是否重新计算
+     */
+    boolean update(NineGridLayoutStrategy strategy, int width, int gap, int paddingLeft, int paddingTop, int paddingRight, int paddingBottom) {
+        if (strategy == mStrategy && width == mWidth && gap == mGap && paddingLeft == mPaddingLeft
+                && paddingTop == mPaddingTop && paddingRight == mPaddingRight && paddingBottom == mPaddingBottom) {
+            return false;
+        }
+        if (strategy != mStrategy) {
+            int maxCount = strategy.getMaxCount();
+            if (mHeights == null || mHeights.length != maxCount + 1) {
+                mHeights = new int[maxCount + 1];
+                mCellRects = new int[maxCount + 1][];
+                for (int count = 0; count <= maxCount; count++) {
+                    mCellRects[count] = new int[count * 4];
+                }
+            }
+            mStrategy = strategy;
+        }
+        mWidth = width;
+        mGap = gap;
+        mPaddingLeft = paddingLeft;
+        mPaddingTop = paddingTop;
+        mPaddingRight = paddingRight;
+        mPaddingBottom = paddingBottom;
+        for (int count = 0; count < mHeights.length; count++) {
+            mHeights[count] = strategy.getHeight(count, width, gap, paddingLeft, paddingTop, paddingRight, paddingBottom);
+            if (count > 0) {
+                strategy.getCellRects(count, width, gap, paddingLeft, paddingTop, paddingRight, paddingBottom, mCellRects[count]);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 获取对应数量的测量高度
+     * @param count 图片数量，不超过最大展示数量
+     */
+    int getHeight(int count) {
+        return mHeights[count];
+    }
+
+    /**
+     * 获取对应数量的格子位置
+     * @param count 图片数量，不超过最大展示数量
+     * @return 每4个int为一个格子的left,top,right,bottom
+     */
+    int[] getCellRects(int count) {
+        return mCellRects[count];
+    }
+}
@@ -2,6 +2,8 @@ package com.zack.view;
 
 import android.widget.ImageView;
 
+import com.realcloud.view.NineGridCellTarget;
+
 /**
  * Created by zack on 2018/12/7.
  * 九宫图展示图片的控件
@@ -11,4 +13,59 @@ public interface NineGridImageAdapter<T> {
 
     void setImage(T url, ImageView imageView);
 
+    /**
+     * 按格子大小加载图片，可以用宽高在解码时缩放
+     * 默认直接调用{@link #setImage(Object, ImageView)}
+     * @param url 图片数据
+     * @param imageView 展示的view
+     * @param index 格子的位置
+     * @param count 展示的图片总数
+     * @param width 格子宽度px
+     * @param height 格子高度px
+     */
+    default void setImage(T url, ImageView imageView, int index, int count, int width, int height) {
+        setImage(url, imageView);
+    }
+
+    /**
+     * 取消图片加载，格子从窗口移除、被回收或者因为图片数量减少被移除时调用
+     * @param imageView 取消加载的view
+     */
+    default void cancelImage(ImageView imageView) {
+    }
+
+    /**
+     * 扁平模式下加载图片，加载完成后调用{@link NineGridCellTarget#setDrawable}
+     * @param url 图片数据
+     * @param target 格子，包含位置和宽高
+     */
+    default void setCellImage(T url, NineGridCellTarget target) {
+    }
+
+    /**
+     * 扁平模式下取消图片加载
+     * @param target 取消加载的格子
+     */
+    default void cancelCellImage(NineGridCellTarget target) {
+    }
+
+    /**
+     * 获取图片的原始宽高，一张、两张图时九宫格按宽高比布局，不需要等图片加载后再调整大小
+     * @param url 图片数据
+     * @param outSize 输出宽高，outSize[0]为宽，outSize[1]为高
+     * @return 不知道宽高时返回false，按默认正方形布局
+     */
+    default boolean getSizeHint(T url, int[] outSize) {
+        return false;
+    }
+
+    /**
+     * 预加载图片，由{@link com.realcloud.view.NineGridPrefetcher}在九宫格绑定之前调用
+     * @param url 图片数据
+     * @param width 将要展示的格子宽度px
+     * @param height 将要展示的格子高度px
+     */
+    default void prefetchImage(T url, int width, int height) {
+    }
+
 }
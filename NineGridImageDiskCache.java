@@ -0,0 +1,122 @@
+package com.realcloud.view;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Created by zack on 2018/12/7.
+ * 网络图片磁盘缓存
+ * 每张图片对应一个文件，文件名为url的md5，先写入临时文件，下载完整后再改名
+ * 总大小超出限制时按最近使用时间删除到限制的90%，避免每次写入都遍历目录
+ */
+
+final class NineGridImageDiskCache {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final File mDirectory; //缓存目录
+
+    private final long mMaxSize; //最大缓存字节数
+
+    private long mSize = -1; //估计的缓存总大小，-1表示还没有统计
+
+    //临时文件正在写入，不删除
+    private static final FilenameFilter KEEP_TEMP_FILTER = new FilenameFilter() {
+        @Override
+        public boolean accept(File dir, String name) {
+            return name.endsWith(TEMP_SUFFIX);
+        }
+    };
+
+    NineGridImageDiskCache(File directory, long maxSize) {
+        mDirectory = directory;
+        mMaxSize = maxSize;
+        if (!mDirectory.exists()) {
+            mDirectory.mkdirs();
+        }
+    }
+
+    /**
+     * 获取已经缓存的文件并更新使用时间
+     * @param url 图片地址
+     * @return 没有缓存时返回null
+     */
+    File get(String url) {
+        File file = new File(mDirectory, NineGridCacheUtil.getKey(url));
+        if (!file.exists()) return null;
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * 写入缓存，中途失败或者线程被中断时删除临时文件
+     * @param url 图片地址
+     * @param input 图片数据，由调用方关闭
+     * @return 缓存文件
+     */
+    File put(String url, InputStream input) throws IOException {
+        String key = NineGridCacheUtil.getKey(url);
+        //同一张图片可能被不同大小的请求同时下载，临时文件按线程区分
+        File temp = new File(mDirectory, key + "." + Thread.currentThread().getId() + TEMP_SUFFIX);
+        File file = new File(mDirectory, key);
+        boolean success = false;
+        OutputStream output = new FileOutputStream(temp);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new IOException("interrupted");
+                }
+                output.write(buffer, 0, read);
+            }
+            output.close();
+            success = temp.renameTo(file) || file.exists();
+        } finally {
+            output.close();
+            if (!success) {
+                temp.delete();
+            }
+        }
+        if (!success) {
+            throw new IOException("rename failed: " + file);
+        }
+        onFileAdded(file.length());
+        return file;
+    }
+
+    /**
+     * 累加估计的总大小，超出限制时才遍历目录删除
+     * @param length 新写入的文件大小
+     */
+    private synchronized void onFileAdded(long length) {
+        if (mSize < 0) {
+            mSize = NineGridCacheUtil.getSize(mDirectory);
+        } else {
+            mSize += length;
+        }
+        if (mSize > mMaxSize) {
+            mSize = NineGridCacheUtil.trim(mDirectory, mMaxSize / 10 * 9, KEEP_TEMP_FILTER);
+        }
+    }
+
+    /**
+     * 清空缓存，正在写入的临时文件不删除
+     */
+    synchronized void clear() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (!file.getName().endsWith(TEMP_SUFFIX)) {
+                file.delete();
+            }
+        }
+        mSize = -1;
+    }
+}
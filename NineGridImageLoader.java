@@ -0,0 +1,408 @@
+package com.realcloud.view;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by zack on 2018/12/7.
+ * 默认的图片加载器，数据为图片地址，支持http(s)、file://、content://和本地路径
+ * 在固定数量的后台线程按格子大小计算inSampleSize解码，解码结果按字节数放入内存缓存，网络图片下载到磁盘缓存
+ * 相同图片相同大小的请求合并为一个，格子重新绑定或者取消时不再回调
+ * 预加载可以在任意线程调用，其他方法都需要在主线程调用
+ */
+
+public class NineGridImageLoader implements NineGridImageAdapter<String> {
+
+    public static final int DEFAULT_THREAD_COUNT = 3; //默认解码线程数量
+
+    public static final long DEFAULT_DISK_CACHE_SIZE = 64L * 1024 * 1024; //默认磁盘缓存大小
+
+    private static final int CONNECT_TIMEOUT = 10 * 1000;
+
+    private static final int READ_TIMEOUT = 20 * 1000;
+
+    private final ContentResolver mContentResolver;
+
+    private final LruCache<String, Bitmap> mMemoryCache; //按字节数限制的内存缓存
+
+    private final NineGridImageDiskCache mDiskCache; //网络图片磁盘缓存
+
+    private final ThreadPoolExecutor mExecutor; //解码线程池
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private final Map<String, Request> mRequests = new HashMap<>(); //正在加载的请求，key为地址和大小
+
+    private final Map<Object, Request> mBindings = new HashMap<>(); //ImageView或者NineGridCellTarget对应的请求
+
+    private final ConcurrentHashMap<String, Object> mDownloadLocks = new ConcurrentHashMap<>(); //同一个地址同时只下载一次
+
+    private Bitmap.Config mDecodeConfig = Bitmap.Config.ARGB_8888; //解码格式
+
+    /**
+     * 内存缓存为最大内存的1/8，磁盘缓存在应用缓存目录
+     */
+    public NineGridImageLoader(Context context) {
+        this(context, (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8),
+                new File(context.getCacheDir(), "nine_grid_images"), DEFAULT_DISK_CACHE_SIZE, DEFAULT_THREAD_COUNT);
+    }
+
+    /**
+     * @param context 用于读取content://图片
+     * @param memoryCacheSize 内存缓存字节数
+     * @param diskCacheDirectory 磁盘缓存目录
+     * @param diskCacheSize 磁盘缓存字节数
+     * @param threadCount 解码线程数量
+     */
+    public NineGridImageLoader(Context context, int memoryCacheSize, File diskCacheDirectory, long diskCacheSize, int threadCount) {
+        mContentResolver = context.getApplicationContext().getContentResolver();
+        mMemoryCache = new LruCache<String, Bitmap>(memoryCacheSize) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+        mDiskCache = new NineGridImageDiskCache(diskCacheDirectory, diskCacheSize);
+        mExecutor = new ThreadPoolExecutor(threadCount, threadCount, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        r.run();
+                    }
+                }, "NineGridImageLoader");
+            }
+        });
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 设置解码格式，不需要透明度时可以使用RGB_565减少一半内存
+     */
+    public void setDecodeConfig(Bitmap.Config decodeConfig) {
+        mDecodeConfig = decodeConfig;
+    }
+
+    /**
+     * 不知道格子大小时按view的大小加载，还没有布局时按屏幕宽度加载
+     */
+    @Override
+    public void setImage(String url, ImageView imageView) {
+        int width = imageView.getWidth();
+        int height = imageView.getHeight();
+        if (width <= 0 || height <= 0) {
+            width = imageView.getResources().getDisplayMetrics().widthPixels;
+            height = width;
+        }
+        bind(imageView, url, width, height);
+    }
+
+    @Override
+    public void setImage(String url, ImageView imageView, int index, int count, int width, int height) {
+        bind(imageView, url, width, height);
+    }
+
+    @Override
+    public void cancelImage(ImageView imageView) {
+        cancel(imageView);
+    }
+
+    @Override
+    public void setCellImage(String url, NineGridCellTarget target) {
+        bind(target, url, target.getWidth(), target.getHeight());
+    }
+
+    @Override
+    public void cancelCellImage(NineGridCellTarget target) {
+        cancel(target);
+    }
+
+    /**
+     * 提前解码到内存缓存，不会被格子取消
+     * 不在主线程调用时切换到主线程处理
+     */
+    @Override
+    public void prefetchImage(final String url, final int width, final int height) {
+        if (url == null || width <= 0 || height <= 0) return;
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    prefetchImage(url, width, height);
+                }
+            });
+            return;
+        }
+        String key = getKey(url, width, height);
+        if (mMemoryCache.get(key) != null) return;
+        Request request = mRequests.get(key);
+        if (request == null) {
+            request = submit(key, url, width, height);
+        }
+        request.prefetch = true;
+    }
+
+    /**
+     * 清空内存缓存
+     */
+    public void clearMemoryCache() {
+        mMemoryCache.evictAll();
+    }
+
+    /**
+     * 清空磁盘缓存
+     */
+    public void clearDiskCache() {
+        mDiskCache.clear();
+    }
+
+    private static String getKey(String url, int width, int height) {
+        return url + '#' + width + 'x' + height;
+    }
+
+    /**
+     * 绑定图片，内存缓存命中时直接展示，否则清空旧图片并加入或者合并请求
+     */
+    private void bind(Object target, String url, int width, int height) {
+        if (url == null || width <= 0 || height <= 0) {
+            cancel(target);
+            deliver(target, null);
+            return;
+        }
+        String key = getKey(url, width, height);
+        //重新绑定相同的图片时继续等待正在进行的请求
+        Request bound = mBindings.get(target);
+        if (bound != null && bound.key.equals(key)) return;
+        cancel(target);
+        Bitmap bitmap = mMemoryCache.get(key);
+        if (bitmap != null) {
+            deliver(target, bitmap);
+            return;
+        }
+        deliver(target, null);
+        Request request = mRequests.get(key);
+        if (request == null) {
+            request = submit(key, url, width, height);
+        }
+        request.targets.add(target);
+        mBindings.put(target, request);
+    }
+
+    private Request submit(String key, String url, int width, int height) {
+        Request request = new Request(key, url, width, height);
+        mRequests.put(key, request);
+        request.future = mExecutor.submit(request);
+        return request;
+    }
+
+    /**
+     * 取消格子的请求，请求没有其他格子等待并且不是预加载时中断解码
+     */
+    private void cancel(Object target) {
+        Request request = mBindings.remove(target);
+        if (request == null) return;
+        request.targets.remove(target);
+        if (request.targets.isEmpty() && !request.prefetch) {
+            mRequests.remove(request.key);
+            request.future.cancel(true);
+        }
+    }
+
+    /**
+     * 主线程回调请求结果
+     */
+    private void complete(Request request, Bitmap bitmap) {
+        if (mRequests.get(request.key) == request) {
+            mRequests.remove(request.key);
+        }
+        for (int i = 0; i < request.targets.size(); i++) {
+            Object target = request.targets.get(i);
+            if (mBindings.get(target) == request) {
+                mBindings.remove(target);
+                deliver(target, bitmap);
+            }
+        }
+        request.targets.clear();
+    }
+
+    private void deliver(Object target, Bitmap bitmap) {
+        if (target instanceof ImageView) {
+            ((ImageView) target).setImageBitmap(bitmap);
+        } else {
+            ((NineGridCellTarget) target).setBitmap(bitmap);
+        }
+    }
+
+    /**
+     * 后台线程加载图片，网络图片先下载到磁盘缓存
+     */
+    private Bitmap load(String url, int width, int height) throws IOException {
+        if (url.startsWith("http://") || url.startsWith("https://")) {
+            return decodeFile(download(url).getPath(), width, height);
+        }
+        if (url.startsWith("content://")) {
+            return decodeContent(Uri.parse(url), width, height);
+        }
+        if (url.startsWith("file://")) {
+            return decodeFile(Uri.parse(url).getPath(), width, height);
+        }
+        return decodeFile(url, width, height);
+    }
+
+    /**
+     * 下载网络图片，同一个地址同时只有一个线程下载，其他线程等待后直接读取缓存
+     */
+    private File download(String url) throws IOException {
+        File file = mDiskCache.get(url);
+        if (file != null) return file;
+        Object lock = new Object();
+        Object existLock = mDownloadLocks.putIfAbsent(url, lock);
+        if (existLock != null) {
+            lock = existLock;
+        }
+        synchronized (lock) {
+            try {
+                file = mDiskCache.get(url);
+                if (file != null) return file;
+                HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+                connection.setConnectTimeout(CONNECT_TIMEOUT);
+                connection.setReadTimeout(READ_TIMEOUT);
+                try {
+                    int code = connection.getResponseCode();
+                    if (code != HttpURLConnection.HTTP_OK) {
+                        throw new IOException("http " + code + ": " + url);
+                    }
+                    InputStream input = connection.getInputStream();
+                    try {
+                        return mDiskCache.put(url, input);
+                    } finally {
+                        input.close();
+                    }
+                } finally {
+                    connection.disconnect();
+                }
+            } finally {
+                mDownloadLocks.remove(url, lock);
+            }
+        }
+    }
+
+    private Bitmap decodeFile(String path, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) return null;
+        prepareOptions(options, width, height);
+        return BitmapFactory.decodeFile(path, options);
+    }
+
+    private Bitmap decodeContent(Uri uri, int width, int height) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        InputStream input = mContentResolver.openInputStream(uri);
+        if (input == null) return null;
+        try {
+            BitmapFactory.decodeStream(input, null, options);
+        } finally {
+            input.close();
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) return null;
+        prepareOptions(options, width, height);
+        input = mContentResolver.openInputStream(uri);
+        if (input == null) return null;
+        try {
+            return BitmapFactory.decodeStream(input, null, options);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * 按格子大小计算inSampleSize，缩放后宽高都不小于格子大小
+     */
+    private void prepareOptions(BitmapFactory.Options options, int width, int height) {
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= width && options.outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = mDecodeConfig;
+    }
+
+    /**
+     * 一次加载请求，相同地址和大小的格子共用
+     */
+    private final class Request implements Runnable {
+
+        final String key;
+
+        final String url;
+
+        final int width;
+
+        final int height;
+
+        final List<Object> targets = new ArrayList<>(2); //等待结果的格子，只在主线程访问
+
+        boolean prefetch; //是否为预加载，预加载的请求不会因为格子取消而中断
+
+        Future<?> future;
+
+        Request(String key, String url, int width, int height) {
+            this.key = key;
+            this.url = url;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public void run() {
+            Bitmap bitmap = null;
+            try {
+                bitmap = load(url, width, height);
+                if (bitmap != null) {
+                    mMemoryCache.put(key, bitmap);
+                }
+            } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                e.printStackTrace();
+            } finally {
+                //无论成功失败都回调，否则请求一直留在mRequests中，之后相同的请求都不会有结果
+                final Bitmap result = bitmap;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        complete(Request.this, result);
+                    }
+                });
+            }
+        }
+    }
+}
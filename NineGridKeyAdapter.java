@@ -0,0 +1,18 @@
+package com.realcloud.view;
+
+/**
+ * Created by zack on 2018/12/7.
+ * 九宫格图片数据比较的key
+ * 重新设置数据时key相同的格子不会重新加载图片
+ */
+
+public interface NineGridKeyAdapter<T> {
+
+    /**
+     * 获取数据对应的key
+     * @param data 图片数据
+     * @return 用于比较的key，不设置时直接使用数据的equals
+     */
+    Object getKey(T data);
+
+}
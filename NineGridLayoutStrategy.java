@@ -0,0 +1,34 @@
+package com.realcloud.view;
+
+/**
+ * Created by zack on 2018/12/7.
+ * 九宫格布局规则
+ * 根据图片数量计算测量高度和每个格子的位置，结果写入传入的数组，不创建对象
+ * 实现需要是无状态的，同一个实例可以被多个NineGridView共用
+ */
+
+public interface NineGridLayoutStrategy {
+
+    /**
+     * 最多展示的格子数量，超出的数据不展示，不能超过{@link NineGridView#MAX_CELL_COUNT}
+     */
+    int getMaxCount();
+
+    /**
+     * 计算测量高度
+     * @param count 图片数量，不超过最大展示数量
+     * @param width 九宫格宽度px，包含padding
+     * @param gap 图片间隔px
+     * @return 测量高度，包含padding
+     */
+    int getHeight(int count, int width, int gap, int paddingLeft, int paddingTop, int paddingRight, int paddingBottom);
+
+    /**
+     * 计算每个格子的位置
+     * @param count 图片数量，不超过最大展示数量
+     * @param width 九宫格宽度px，包含padding
+     * @param gap 图片间隔px
+     * @param outRects 输出位置，每4个int为一个格子的left,top,right,bottom，长度为count * 4
+     */
+    void getCellRects(int count, int width, int gap, int paddingLeft, int paddingTop, int paddingRight, int paddingBottom, int[] outRects);
+}
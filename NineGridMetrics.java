@@ -0,0 +1,130 @@
+package com.realcloud.view;
+
+/**
+ * Created by zack on 2018/12/7.
+ * 预先计算的九宫格尺寸
+ * 不需要View，可以在后台线程根据数据数量、宽度、间隔、padding计算测量高度和每个格子的位置
+ * 创建后不可修改，可以在线程间传递，通过{@link NineGridView#setMetrics}交给九宫格使用
+ */
+
+public final class NineGridMetrics {
+
+    private final NineGridLayoutStrategy mStrategy; //布局规则
+
+    private final int mCount; //格子数量，已按最大数量截取
+
+    private final int mWidth; //宽度，包含padding
+
+    private final int mGap;
+
+    private final int mPaddingLeft;
+
+    private final int mPaddingTop;
+
+    private final int mPaddingRight;
+
+    private final int mPaddingBottom;
+
+    private final int mHeight; //测量高度，包含padding
+
+    final int[] mCellRects; //每4个int为一个格子的left,top,right,bottom
+
+    private NineGridMetrics(NineGridLayoutStrategy strategy, int count, int width, int gap,
+                            int paddingLeft, int paddingTop, int paddingRight, int paddingBottom) {
+        mStrategy = strategy;
+        mCount = count;
+        mWidth = width;
+        mGap = gap;
+        mPaddingLeft = paddingLeft;
+        mPaddingTop = paddingTop;
+        mPaddingRight = paddingRight;
+        mPaddingBottom = paddingBottom;
+        mHeight = strategy.getHeight(count, width, gap, paddingLeft, paddingTop, paddingRight, paddingBottom);
+        mCellRects = new int[count * 4];
+        if (count > 0) {
+            strategy.getCellRects(count, width, gap, paddingLeft, paddingTop, paddingRight, paddingBottom, mCellRects);
+        }
+    }
+
+    /**
+     * 按默认布局规则计算
+     * @param dataCount 数据数量，超过最大数量时按最大数量计算
+     * @param width 九宫格宽度px，包含padding
+     * @param gap 图片间隔px
+     */
+    public static NineGridMetrics compute(int dataCount, int width, int gap,
+                                          int paddingLeft, int paddingTop, int paddingRight, int paddingBottom) {
+        return compute(NineGridDefaultLayoutStrategy.INSTANCE, dataCount, width, gap,
+                paddingLeft, paddingTop, paddingRight, paddingBottom);
+    }
+
+    /**
+     * 按指定布局规则计算，可以在任意线程调用
+     * @param strategy 布局规则，为空时使用默认规则
+     * @param dataCount 数据数量，超过最大数量时按最大数量计算
+     * @param width 九宫格宽度px，包含padding
+     * @param gap 图片间隔px
+     */
+    public static NineGridMetrics compute(NineGridLayoutStrategy strategy, int dataCount, int width, int gap,
+                                          int paddingLeft, int paddingTop, int paddingRight, int paddingBottom) {
+        if (strategy == null) {
+            strategy = NineGridDefaultLayoutStrategy.INSTANCE;
+        }
+        int count = Math.max(0, Math.min(dataCount, strategy.getMaxCount()));
+        return new NineGridMetrics(strategy, count, width, gap, paddingLeft, paddingTop, paddingRight, paddingBottom);
+    }
+
+    /**
+     * 是否与指定参数的计算结果一致
+     * @param count 格子数量，已按最大数量截取
+     */
+    boolean matches(NineGridLayoutStrategy strategy, int count, int width, int gap,
+                    int paddingLeft, int paddingTop, int paddingRight, int paddingBottom) {
+        return strategy == mStrategy && count == mCount && width == mWidth && gap == mGap
+                && paddingLeft == mPaddingLeft && paddingTop == mPaddingTop
+                && paddingRight == mPaddingRight && paddingBottom == mPaddingBottom;
+    }
+
+    /**
+     * 测量高度，包含padding
+     */
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * 格子数量
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * 格子宽度，可以用于图片按大小解码
+     * @param index 格子位置
+     */
+    public int getCellWidth(int index) {
+        return mCellRects[index * 4 + 2] - mCellRects[index * 4];
+    }
+
+    /**
+     * 格子高度，可以用于图片按大小解码
+     * @param index 格子位置
+     */
+    public int getCellHeight(int index) {
+        return mCellRects[index * 4 + 3] - mCellRects[index * 4 + 1];
+    }
+
+    /**
+     * 获取格子位置
+     * @param index 格子位置
+     * @param outRect 输出left,top,right,bottom，长度至少为4
+     */
+    public void getCellRect(int index, int[] outRect) {
+        System.arraycopy(mCellRects, index * 4, outRect, 0, 4);
+    }
+}
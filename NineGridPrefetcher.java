@@ -0,0 +1,110 @@
+package com.realcloud.view;
+
+import java.util.List;
+
+/**
+ * Created by zack on 2018/12/7.
+ * 九宫格图片预加载
+ * 按照NineGridView相同的布局规则计算格子大小，提前调用adapter的prefetchImage
+ * 列表即将展示下一批数据时调用，不是线程安全的，需要在主线程使用
+ */
+
+public class NineGridPrefetcher<T> {
+
+    private final NineGridImageAdapter<T> imageAdapter; //图片加载器
+
+    private final NineGridGeometry mGeometry = new NineGridGeometry(); //布局几何表
+
+    private NineGridLayoutStrategy mLayoutStrategy = NineGridDefaultLayoutStrategy.INSTANCE; //布局规则，需要和NineGridView一致
+
+    private int mGap = NineGridView.DEFAULT_IMAGE_GAP; //图片之间的距离，需要和NineGridView一致
+
+    private float mMinHintAspect = NineGridView.DEFAULT_MIN_HINT_ASPECT; //宽高提示的最小高宽比，需要和NineGridView一致
+
+    private float mMaxHintAspect = NineGridView.DEFAULT_MAX_HINT_ASPECT; //宽高提示的最大高宽比，需要和NineGridView一致
+
+    private final int[] mHintSize = new int[2]; //读取宽高提示用
+
+    private final int[] mHintRects = new int[8]; //按宽高提示调整后的格子位置
+
+    private int mPaddingLeft;
+
+    private int mPaddingTop;
+
+    private int mPaddingRight;
+
+    private int mPaddingBottom;
+
+    public NineGridPrefetcher(NineGridImageAdapter<T> imageAdapter) {
+        this.imageAdapter = imageAdapter;
+    }
+
+    /**
+     * 设置图片间隔，需要和NineGridView一致
+     * @param gap 图片间隔px
+     */
+    public void setGap(int gap) {
+        mGap = gap;
+    }
+
+    /**
+     * 设置布局规则，需要和NineGridView一致
+     * @param layoutStrategy 为空时使用默认规则
+     */
+    public void setLayoutStrategy(NineGridLayoutStrategy layoutStrategy) {
+        mLayoutStrategy = layoutStrategy != null ? layoutStrategy : NineGridDefaultLayoutStrategy.INSTANCE;
+    }
+
+    /**
+     * 设置宽高提示的高宽比范围，需要和NineGridView一致
+     * @param minAspect 最小高宽比
+     * @param maxAspect 最大高宽比
+     */
+    public void setSizeHintAspectRange(float minAspect, float maxAspect) {
+        mMinHintAspect = minAspect;
+        mMaxHintAspect = maxAspect;
+    }
+
+    /**
+     * 设置padding，需要和NineGridView一致
+     */
+    public void setPadding(int left, int top, int right, int bottom) {
+        mPaddingLeft = left;
+        mPaddingTop = top;
+        mPaddingRight = right;
+        mPaddingBottom = bottom;
+    }
+
+    /**
+     * 预加载多组九宫格数据
+     * @param dataSets 即将展示的多组数据
+     * @param width 九宫格宽度px，包含padding
+     */
+    public void prefetchAll(List<? extends List<T>> dataSets, int width) {
+        for (int i = 0; i < dataSets.size(); i++) {
+            prefetch(dataSets.get(i), width);
+        }
+    }
+
+    /**
+     * 预加载一组九宫格数据
+     * @param imageData 即将展示的数据
+     * @param width 九宫格宽度px，包含padding
+     */
+    public void prefetch(List<T> imageData, int width) {
+        if (imageData == null || width <= 0) return;
+        mGeometry.update(mLayoutStrategy, width, mGap, mPaddingLeft, mPaddingTop, mPaddingRight, mPaddingBottom);
+        int count = Math.min(imageData.size(), mLayoutStrategy.getMaxCount());
+        int[] rects = mGeometry.getCellRects(count);
+        //和绑定时一样按宽高提示调整，保证预加载的大小和实际加载的一致
+        float hintAspect = NineGridSizeHint.computeAspect(imageAdapter, mLayoutStrategy, imageData, count,
+                mMinHintAspect, mMaxHintAspect, mHintSize);
+        if (hintAspect > 0) {
+            NineGridSizeHint.applyAspect(rects, count, hintAspect, mHintRects);
+            rects = mHintRects;
+        }
+        for (int i = 0, j = 0; i < count; i++, j += 4) {
+            imageAdapter.prefetchImage(imageData.get(i), rects[j + 2] - rects[j], rects[j + 3] - rects[j + 1]);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.realcloud.view;
+
+import java.util.List;
+
+/**
+ * Created by zack on 2018/12/7.
+ * 按adapter的宽高提示调整格子高度
+ * NineGridView和NineGridPrefetcher共用，保证预加载、查询和绑定时的格子大小一致
+ */
+
+final class NineGridSizeHint {
+
+    private NineGridSizeHint() {
+    }
+
+    /**
+     * 根据adapter的宽高提示计算高宽比
+     * 只在默认布局规则下处理一张、两张图，两张图取平均值，有一张没有提示时不使用
+     * @param imageData 图片数据
+     * @param count 展示数量，已按最大数量截取
+     * @param sizeBuffer 读取宽高用，长度至少为2
+     * @return 限制在最小最大值之间的高宽比，0表示不使用
+     */
+    static <T> float computeAspect(NineGridImageAdapter<T> imageAdapter, NineGridLayoutStrategy strategy,
+                                   List<T> imageData, int count, float minAspect, float maxAspect, int[] sizeBuffer) {
+        if (imageData == null || imageAdapter == null || strategy.getClass() != NineGridDefaultLayoutStrategy.class) {
+            return 0;
+        }
+        if (count == 0 || count > 2) return 0;
+        float aspect = 0;
+        for (int i = 0; i < count; i++) {
+            sizeBuffer[0] = 0;
+            sizeBuffer[1] = 0;
+            if (!imageAdapter.getSizeHint(imageData.get(i), sizeBuffer) || sizeBuffer[0] <= 0 || sizeBuffer[1] <= 0) {
+                return 0;
+            }
+            aspect += (float) sizeBuffer[1] / sizeBuffer[0];
+        }
+        aspect /= count;
+        return Math.max(minAspect, Math.min(maxAspect, aspect));
+    }
+
+    /**
+     * 按高宽比调整格子高度，宽度和位置不变
+     * @param rects 默认规则的格子位置
+     * @param count 格子数量，不超过2
+     * @param aspect 高宽比
+     * @param outRects 输出位置，长度至少为count * 4
+     */
+    static void applyAspect(int[] rects, int count, float aspect, int[] outRects) {
+        for (int j = 0; j < count * 4; j += 4) {
+            outRects[j] = rects[j];
+            outRects[j + 1] = rects[j + 1];
+            outRects[j + 2] = rects[j + 2];
+            outRects[j + 3] = rects[j + 1] + Math.round((rects[j + 2] - rects[j]) * aspect);
+        }
+    }
+}
@@ -1,14 +1,28 @@
 package com.realcloud.view;
 
 import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Bundle;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.support.v4.widget.ExploreByTouchHelper;
 import android.util.AttributeSet;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.view.accessibility.AccessibilityEvent;
 import android.widget.ImageView;
 
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -24,24 +38,149 @@ import java.util.List;
  * 七张图：分两个三张均分顺序排放剩一个下一行顺序排放
  * 八张图：分两个三张均分顺序排放剩两个下一行顺序排放
  * 九张图：分三个三张均分顺序排放
+ * 以上为默认布局规则，可以通过{@link NineGridLayoutStrategy}替换
+ * 默认规则下adapter提供图片宽高时，一张、两张图按宽高比计算高度
+ * 扁平模式下不添加子view，所有格子在onDraw中绘制
+ * 超出模式下最后一个格子绘制"+N"表示未展示的数量
  */
 
 public class NineGridView<T> extends ViewGroup {
 
     public static final int DEFAULT_MAX_IMAGE = 9;//最多默认展示九张图片
 
+    public static final int MAX_CELL_COUNT = 31;//布局规则最多支持的格子数量，格子状态按位存储在int中
+
+    public static final int DEFAULT_OVERFLOW_MASK_COLOR = 0x80000000;//超出数量默认蒙层颜色
+
+    public static final float DEFAULT_MIN_HINT_ASPECT = 0.5f;//按宽高提示布局时默认最小高宽比
+
+    public static final float DEFAULT_MAX_HINT_ASPECT = 1.5f;//按宽高提示布局时默认最大高宽比
+
     public static final int DEFAULT_IMAGE_GAP = 15;//默认图片间隔
 
+    public static final float DEFAULT_LAZY_VISIBLE_FRACTION = 0.5f;//懒加载默认可见比例
+
+    public static final long DEFAULT_LAZY_DWELL_TIME = 150;//懒加载默认停留时间ms
+
     private int mGap=DEFAULT_IMAGE_GAP;//图片之间的距离
 
     private List<T> mImageDatas;//图片存储数据
 
+    private List<T> mReadOnlyImageDatas;//点击事件中使用的只读数据，不复制
+
+    private List<T> mCopiedImageDatas;//复制模式下持有的数据
+
+    private List<T> mReadOnlyCopiedImageDatas;//复制数据对应的只读数据
+
+    private boolean mCopyImageData = true;//设置数据时是否复制
+
     private List<ImageView> imageViews = new ArrayList<>(); //存储view的list
 
     private NineGridImageAdapter<T> imageAdapter; //图片加载器
 
     private NineGridClickAdapter<T> clickAdapter; //点击事件处理器
 
+    private NineGridViewPool mViewPool; //共享的ImageView回收池，可以为空
+
+    private NineGridKeyAdapter<T> keyAdapter; //数据比较key，为空时使用equals
+
+    private NineGridLayoutStrategy mLayoutStrategy = NineGridDefaultLayoutStrategy.INSTANCE; //布局规则
+
+    private final NineGridGeometry mGeometry = new NineGridGeometry(); //布局几何表
+
+    private NineGridGeometry mQueryGeometry; //getCellSize查询其他宽度时使用，不影响布局几何表
+
+    private NineGridMetrics mMetrics; //预先计算的尺寸，参数一致时跳过几何表计算
+
+    private float mHintAspect; //当前数据按宽高提示得到的高宽比，0表示不使用
+
+    private float mMinHintAspect = DEFAULT_MIN_HINT_ASPECT; //宽高提示的最小高宽比
+
+    private float mMaxHintAspect = DEFAULT_MAX_HINT_ASPECT; //宽高提示的最大高宽比
+
+    private final int[] mHintSize = new int[2]; //读取宽高提示用
+
+    private final int[] mHintRects = new int[8]; //按宽高提示调整后的格子位置
+
+    private final int[] mHintSizeRects = new int[8]; //getCellSize查询时按宽高提示调整后的格子位置
+
+    private int mDirtyCells; //需要重新加载图片的格子，按位存储
+
+    private int[] mBoundWidths = new int[DEFAULT_MAX_IMAGE]; //已加载图片时格子的宽度
+
+    private int[] mBoundHeights = new int[DEFAULT_MAX_IMAGE]; //已加载图片时格子的高度
+
+    private int mBoundCells; //已经开始加载图片且没有取消的格子，按位存储
+
+    private int mLayoutPassCount; //onLayout执行次数，用于统计
+
+    private boolean mLazyLoad; //是否可见并停留一段时间后才加载图片
+
+    private float mLazyVisibleFraction = DEFAULT_LAZY_VISIBLE_FRACTION; //懒加载需要的可见比例
+
+    private long mLazyDwellTime = DEFAULT_LAZY_DWELL_TIME; //懒加载需要的停留时间
+
+    private boolean mLazyBindPending; //懒加载模式下是否有等待加载的格子
+
+    private final Rect mVisibleRect = new Rect();
+
+    private boolean mFlattened; //扁平模式，不创建ImageView，直接绘制每个格子
+
+    private NineGridCellTarget[] mCellTargets = new NineGridCellTarget[DEFAULT_MAX_IMAGE]; //扁平模式的格子
+
+    private int mPressedCell = -1; //扁平模式下按下的格子
+
+    private boolean mCellGesture; //扁平模式下本次手势是否从格子开始，不是时交给父类处理
+
+    private int mClickedCell = -1; //扁平模式下抬起时点击的格子，由performClick处理
+
+    private CellAccessibilityHelper mAccessibilityHelper; //扁平模式下为每个格子提供无障碍节点
+
+    private boolean mOverflowMode; //超出最大数量时最后一个格子展示"+N"
+
+    private String mOverflowText; //当前展示的超出数量文字，为空时不展示
+
+    private Paint mOverflowPaint; //超出数量的画笔，使用时创建
+
+    private int mOverflowMaskColor = DEFAULT_OVERFLOW_MASK_COLOR; //超出数量蒙层颜色
+
+    private int mOverflowTextColor = 0xFFFFFFFF; //超出数量文字颜色
+
+    private float mOverflowTextSize; //超出数量文字大小px，不大于0时按格子高度计算
+
+    //所有格子共用的点击事件，点击时根据view所在位置获取position
+    private final OnClickListener mCellClickListener = new OnClickListener() {
+        @Override
+        public void onClick(View v) {
+            int position = indexOfChild(v);
+            if (clickAdapter != null && position >= 0){
+                clickAdapter.onImageClick(position, mReadOnlyImageDatas, (ImageView) v);
+            }
+        }
+    };
+
+    //停留时间到达后检查可见比例
+    private final Runnable mLazyBindRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mLazyBindPending && isVisibleEnough()) {
+                mLazyBindPending = false;
+                bindCells();
+            }
+        }
+    };
+
+    //滚动时重新计时，快速滑动过程中不会加载
+    private final ViewTreeObserver.OnScrollChangedListener mScrollChangedListener = new ViewTreeObserver.OnScrollChangedListener() {
+        @Override
+        public void onScrollChanged() {
+            if (mLazyBindPending) {
+                removeCallbacks(mLazyBindRunnable);
+                postDelayed(mLazyBindRunnable, mLazyDwellTime);
+            }
+        }
+    };
+
     public NineGridView(Context context) {
         super(context);
     }
@@ -55,12 +194,13 @@ public class NineGridView<T> extends ViewGroup {
     }
 
     /**
-     * 默认最大size展示9张图片
+     * 按布局规则的最大数量截取，默认最大size展示9张图片
      * @param size 当前数量
      * @return 最大展示数量
      */
     private int getNeedShowCount(int size) {
-        return size > DEFAULT_MAX_IMAGE ? DEFAULT_MAX_IMAGE : size;
+        int maxCount = mLayoutStrategy.getMaxCount();
+        return size > maxCount ? maxCount : size;
     }
 
     /**
@@ -68,137 +208,231 @@ public class NineGridView<T> extends ViewGroup {
      * @param position 对应position
      * @return 返回imageview
      */
-    private ImageView getImageView(final int position){
-        ImageView imageView;
+    private ImageView getImageView(int position){
         if (position < imageViews.size()) {
-            imageView = imageViews.get(position);
-        } else {
+            return imageViews.get(position);
+        }
+        ImageView imageView = mViewPool != null ? mViewPool.getRecycledView() : null;
+        if (imageView == null) {
             imageView = new ImageView(getContext());
             imageView.setScaleType(ImageView.ScaleType.CENTER_CROP);
-            imageViews.add(imageView);
-            imageView.setOnClickListener(new OnClickListener() {
-                @Override
-                public void onClick(View v) {
-                    if (clickAdapter != null){
-                        clickAdapter.onImageClick(position,mImageDatas, (ImageView) v);
-                    }
-                }
-            });
         }
+        imageViews.add(imageView);
+        imageView.setOnClickListener(mCellClickListener);
         return imageView;
     }
 
+    /**
+     * 把不再展示的ImageView放回回收池
+     * @param fromPosition 从该位置开始回收
+     */
+    private void recycleImageViews(int fromPosition) {
+        for (int i = imageViews.size() - 1; i >= fromPosition; i--) {
+            ImageView imageView = imageViews.remove(i);
+            //点击事件持有当前九宫格，放回共享的回收池前清空，避免回收池持有九宫格和数据
+            imageView.setOnClickListener(null);
+            imageView.setImageDrawable(null);
+            mViewPool.putRecycledView(imageView);
+        }
+    }
+
     //根据布局规则计算高度
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
         int width = MeasureSpec.getSize(widthMeasureSpec);
-        int totalWidth = width - getPaddingLeft() - getPaddingRight();
-        int height =  width - getPaddingTop() - getPaddingBottom();
-        if (mImageDatas != null && mImageDatas.size() > 0){
-            switch (mImageDatas.size()){
-                case 2:
-                    height = (totalWidth-mGap)/2;
-                    break;
-                case 3:
-                    height = (totalWidth-2*mGap)/3;
-                    break;
-                case 5:
-                case 6:
-                    height = (totalWidth-2*mGap)/3*2+mGap;
-                    break;
-            }
-        }
-        height = height + getPaddingTop() + getPaddingBottom();
-        setMeasuredDimension(width, height);
+        int count = mImageDatas != null ? getNeedShowCount(mImageDatas.size()) : 0;
+        if (matchesMetrics(count, width)) {
+            setMeasuredDimension(width, mMetrics.getHeight());
+            return;
+        }
+        if (mHintAspect > 0 && count > 0) {
+            int[] rects = getCellRects(count, width);
+            setMeasuredDimension(width, rects[3] + getPaddingBottom());
+            return;
+        }
+        updateGeometry(width);
+        setMeasuredDimension(width, mGeometry.getHeight(count));
     }
 
+    //直接读取几何表中的格子位置
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        mLayoutPassCount++;
         if (mImageDatas == null) return;
-        switch (getNeedShowCount(mImageDatas.size())){
-            case 1:
-                layoutSingleView();
-                break;
-            case 2:
-                layoutTwoView();
-                break;
-            case 4:
-                layoutFourView();
-                break;
-            default:
-                layoutNormalView();
-                break;
+        int count = getNeedShowCount(mImageDatas.size());
+        int[] rects = getCellRects(count, getMeasuredWidth());
+        if (!mFlattened) {
+            for (int i = 0, j = 0; i < count; i++, j += 4) {
+                getChildAt(i).layout(rects[j], rects[j + 1], rects[j + 2], rects[j + 3]);
+            }
+        } else if (mAccessibilityHelper != null) {
+            mAccessibilityHelper.invalidateRoot();
         }
+        bindImages();
+    }
+
+    /**
+     * 按当前间隔和padding更新几何表
+     * @param width 九宫格宽度
+     */
+    private void updateGeometry(int width) {
+        mGeometry.update(mLayoutStrategy, width, mGap, getPaddingLeft(), getPaddingTop(), getPaddingRight(), getPaddingBottom());
     }
 
     /**
-     * 展示一个图片
+     * 预先计算的尺寸是否和当前参数一致
      */
-    private void layoutSingleView(){
-        ImageView imageView = (ImageView) getChildAt(0);
-        imageView.layout(getPaddingLeft(),getPaddingTop(),getMeasuredWidth() - getPaddingRight(),getMeasuredHeight() - getPaddingBottom());
-        if (imageAdapter != null){
-            imageAdapter.setImage(mImageDatas.get(0),imageView);
+    private boolean matchesMetrics(int count, int width) {
+        return mMetrics != null && mHintAspect == 0 && mMetrics.matches(mLayoutStrategy, count, width, mGap,
+                getPaddingLeft(), getPaddingTop(), getPaddingRight(), getPaddingBottom());
+    }
+
+    /**
+     * 获取当前数据的格子位置，优先使用预先计算的尺寸，有宽高提示时按高宽比调整格子高度
+     * @param count 格子数量
+     * @param width 九宫格宽度
+     * @return 每4个int为一个格子的left,top,right,bottom
+     */
+    private int[] getCellRects(int count, int width) {
+        if (matchesMetrics(count, width)) {
+            return mMetrics.mCellRects;
+        }
+        updateGeometry(width);
+        int[] rects = mGeometry.getCellRects(count);
+        if (mHintAspect == 0) {
+            return rects;
+        }
+        NineGridSizeHint.applyAspect(rects, count, mHintAspect, mHintRects);
+        return mHintRects;
+    }
+
+    /**
+     * 根据adapter的宽高提示计算高宽比
+     * @param imageData 图片数据
+     * @return 限制在最小最大值之间的高宽比，0表示不使用
+     */
+    private float computeHintAspect(List<T> imageData) {
+        if (imageData == null) return 0;
+        return NineGridSizeHint.computeAspect(imageAdapter, mLayoutStrategy, imageData, getNeedShowCount(imageData.size()),
+                mMinHintAspect, mMaxHintAspect, mHintSize);
+    }
+
+    /**
+     * 重新计算当前数据的高宽比，变化时重新布局
+     */
+    private void updateHintAspect() {
+        float aspect = computeHintAspect(mImageDatas);
+        if (aspect != mHintAspect) {
+            mHintAspect = aspect;
+            requestLayout();
         }
     }
 
     /**
-     * 一行展示二个图片
+     * 加载图片，懒加载模式下等待可见后再加载
      */
-    private void layoutTwoView() {
-        int imageWidth = (getMeasuredWidth() - getPaddingRight() - getPaddingLeft() - mGap) / 2;
-        ImageView imageView1 = (ImageView) getChildAt(0);
-        imageView1.layout(getPaddingLeft(),getPaddingTop(),getPaddingLeft()+imageWidth,getPaddingTop() + imageWidth);
-        if (imageAdapter != null){
-            imageAdapter.setImage(mImageDatas.get(0),imageView1);
+    private void bindImages() {
+        if (!mLazyLoad) {
+            bindCells();
+            return;
         }
-        ImageView imageView2 = (ImageView) getChildAt(1);
-        imageView2.layout(getPaddingLeft()+imageWidth + mGap ,getPaddingTop(),getPaddingLeft()+imageWidth*2+mGap,getPaddingTop() + imageWidth);
-        if (imageAdapter != null){
-            imageAdapter.setImage(mImageDatas.get(1),imageView2);
+        //等待期间不展示旧数据的图片
+        for (int i = 0; i < getCellCount(); i++) {
+            if ((mDirtyCells & (1 << i)) != 0 && (mBoundCells & (1 << i)) != 0) {
+                cancelCell(i);
+                if (mFlattened) {
+                    mCellTargets[i].setDrawable(null);
+                } else {
+                    ((ImageView) getChildAt(i)).setImageDrawable(null);
+                }
+            }
+        }
+        mLazyBindPending = true;
+        removeCallbacks(mLazyBindRunnable);
+        postDelayed(mLazyBindRunnable, mLazyDwellTime);
+    }
+
+    /**
+     * 当前可见比例是否达到懒加载要求
+     */
+    private boolean isVisibleEnough() {
+        if (!isShown() || getWidth() <= 0 || getHeight() <= 0 || !getGlobalVisibleRect(mVisibleRect)) {
+            return false;
         }
+        float visibleArea = (float) mVisibleRect.width() * mVisibleRect.height();
+        return visibleArea >= mLazyVisibleFraction * getWidth() * getHeight();
     }
 
     /**
-     * 两行每行2个展示四个图片
+     * 加载图片，只处理数据变化或者格子大小变化的格子
      */
-    private void layoutFourView(){
-        int imageWidth = (getMeasuredWidth() - getPaddingRight() - getPaddingLeft() - mGap) / 2;
-        for (int i= 0; i < getNeedShowCount(mImageDatas.size()) ;i++){
-            int imageleft = getPaddingLeft() + (i%2) * (imageWidth + mGap);
-            int imageTop = getPaddingTop() + (i/2) * (imageWidth + mGap);
-            ImageView imageView = (ImageView) getChildAt(i);
-            imageView.layout(imageleft,imageTop,imageleft + imageWidth,imageTop + imageWidth);
-            if (imageAdapter != null){
-                imageAdapter.setImage(mImageDatas.get(i),imageView);
+    private void bindCells() {
+        if (mImageDatas == null || imageAdapter == null) return;
+        int count = getNeedShowCount(mImageDatas.size());
+        int[] rects = getCellRects(count, getMeasuredWidth());
+        for (int i = 0, j = 0; i < count; i++, j += 4) {
+            int width = rects[j + 2] - rects[j];
+            int height = rects[j + 3] - rects[j + 1];
+            if ((mDirtyCells & (1 << i)) == 0 && mBoundWidths[i] == width && mBoundHeights[i] == height) {
+                continue;
+            }
+            mBoundWidths[i] = width;
+            mBoundHeights[i] = height;
+            mBoundCells |= 1 << i;
+            if (mFlattened) {
+                mCellTargets[i].setSize(width, height);
+                imageAdapter.setCellImage(mImageDatas.get(i), mCellTargets[i]);
+            } else {
+                imageAdapter.setImage(mImageDatas.get(i), (ImageView) getChildAt(i), i, count, width, height);
             }
         }
+        mDirtyCells = 0;
     }
 
     /**
-     * 每行3个展示通用九宫格图片
+     * 取消格子的图片加载，之后需要重新加载
+     * @param position 格子位置
      */
-    private void layoutNormalView(){
-        int imageWidth = (getMeasuredWidth() - getPaddingRight() - getPaddingLeft() - 2*mGap) / 3;
-        for (int i= 0; i < getNeedShowCount(mImageDatas.size()) ;i++){
-            int imageleft = getPaddingLeft() + (i%3) * (imageWidth + mGap);
-            int imageTop = getPaddingTop() + (i/3) * (imageWidth + mGap);
-            ImageView imageView = (ImageView) getChildAt(i);
-            imageView.layout(imageleft,imageTop,imageleft + imageWidth,imageTop + imageWidth);
-            if (imageAdapter != null){
-                imageAdapter.setImage(mImageDatas.get(i),imageView);
+    private void cancelCell(int position) {
+        if ((mBoundCells & (1 << position)) == 0) return;
+        mBoundCells &= ~(1 << position);
+        mBoundWidths[position] = 0;
+        mBoundHeights[position] = 0;
+        if (imageAdapter != null) {
+            if (mFlattened) {
+                imageAdapter.cancelCellImage(mCellTargets[position]);
+            } else {
+                imageAdapter.cancelImage((ImageView) getChildAt(position));
             }
         }
     }
 
     /**
-     * 设置图片数据源
-     * @param imageData 展示的图片不为空
+     * 当前格子数量，扁平模式下没有子view
      */
-    public void setImageData(@NotNull List<T> imageData){
-        int oldCount = mImageDatas != null ? mImageDatas.size() : 0;
-        int newCount = getNeedShowCount(imageData.size());
+    private int getCellCount() {
+        if (!mFlattened) return getChildCount();
+        return mImageDatas != null ? getNeedShowCount(mImageDatas.size()) : 0;
+    }
+
+    /**
+     * 调整格子数量，普通模式添加或移除ImageView，扁平模式创建或清空格子
+     * @param oldCount 当前数量
+     * @param newCount 新的数量
+     */
+    private void resizeCells(int oldCount, int newCount) {
+        if (mFlattened) {
+            for (int i = oldCount; i < newCount; i++) {
+                if (mCellTargets[i] == null) {
+                    mCellTargets[i] = new NineGridCellTarget(this, i);
+                }
+            }
+            for (int i = newCount; i < oldCount; i++) {
+                mCellTargets[i].setDrawable(null);
+            }
+            return;
+        }
         //控制图片展示只有对应数量的view
         if (oldCount < newCount){
             for (int i=0;i<newCount - oldCount;i++){
@@ -207,31 +441,513 @@ public class NineGridView<T> extends ViewGroup {
             }
         }else if (oldCount > newCount){
             removeViews(newCount,oldCount - newCount);
+            if (mViewPool != null){
+                recycleImageViews(newCount);
+            }
+        }
+    }
+
+    //扁平模式下按centerCrop绘制每个格子
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (!mFlattened || mImageDatas == null) return;
+        int count = getNeedShowCount(mImageDatas.size());
+        int[] rects = getCellRects(count, getMeasuredWidth());
+        for (int i = 0, j = 0; i < count; i++, j += 4) {
+            Drawable drawable = mCellTargets[i].getDrawable();
+            if (drawable == null) continue;
+            int cellWidth = rects[j + 2] - rects[j];
+            int cellHeight = rects[j + 3] - rects[j + 1];
+            int drawableWidth = drawable.getIntrinsicWidth();
+            int drawableHeight = drawable.getIntrinsicHeight();
+            if (drawableWidth <= 0 || drawableHeight <= 0) {
+                drawable.setBounds(rects[j], rects[j + 1], rects[j + 2], rects[j + 3]);
+                drawable.draw(canvas);
+                continue;
+            }
+            float scale = Math.max((float) cellWidth / drawableWidth, (float) cellHeight / drawableHeight);
+            int scaledWidth = Math.round(drawableWidth * scale);
+            int scaledHeight = Math.round(drawableHeight * scale);
+            int left = rects[j] + (cellWidth - scaledWidth) / 2;
+            int top = rects[j + 1] + (cellHeight - scaledHeight) / 2;
+            canvas.save();
+            canvas.clipRect(rects[j], rects[j + 1], rects[j + 2], rects[j + 3]);
+            drawable.setBounds(left, top, left + scaledWidth, top + scaledHeight);
+            drawable.draw(canvas);
+            canvas.restore();
+        }
+    }
+
+    //在所有格子之上绘制超出数量，普通模式和扁平模式都适用
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        if (mOverflowText == null || mImageDatas == null) return;
+        int count = getNeedShowCount(mImageDatas.size());
+        if (count == 0) return;
+        int[] rects = getCellRects(count, getMeasuredWidth());
+        int j = (count - 1) * 4;
+        if (mOverflowPaint == null) {
+            mOverflowPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            mOverflowPaint.setTextAlign(Paint.Align.CENTER);
+        }
+        Paint paint = mOverflowPaint;
+        paint.setColor(mOverflowMaskColor);
+        canvas.drawRect(rects[j], rects[j + 1], rects[j + 2], rects[j + 3], paint);
+        paint.setColor(mOverflowTextColor);
+        paint.setTextSize(mOverflowTextSize > 0 ? mOverflowTextSize : (rects[j + 3] - rects[j + 1]) / 3f);
+        float x = (rects[j] + rects[j + 2]) / 2f;
+        float y = (rects[j + 1] + rects[j + 3]) / 2f - (paint.descent() + paint.ascent()) / 2f;
+        canvas.drawText(mOverflowText, x, y, paint);
+    }
+
+    /**
+     * 按当前数据更新超出数量文字
+     */
+    private void updateOverflowText() {
+        int overflow = mImageDatas != null ? mImageDatas.size() - getNeedShowCount(mImageDatas.size()) : 0;
+        String text = mOverflowMode && overflow > 0 ? "+" + overflow : null;
+        if (text == null ? mOverflowText != null : !text.equals(mOverflowText)) {
+            mOverflowText = text;
+            invalidate();
+        }
+    }
+
+    @Override
+    protected boolean verifyDrawable(Drawable who) {
+        if (mFlattened) {
+            for (int i = 0; i < mCellTargets.length; i++) {
+                if (mCellTargets[i] != null && mCellTargets[i].getDrawable() == who) {
+                    return true;
+                }
+            }
+        }
+        return super.verifyDrawable(who);
+    }
+
+    //扁平模式下根据格子位置处理点击
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!mFlattened || clickAdapter == null) {
+            return super.onTouchEvent(event);
+        }
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            mPressedCell = findCell((int) event.getX(), (int) event.getY());
+            mCellGesture = mPressedCell >= 0;
+        }
+        //没有按在格子上时整个手势交给父类，保持按下状态和长按的处理
+        if (!mCellGesture) {
+            return super.onTouchEvent(event);
+        }
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_MOVE:
+                if (mPressedCell >= 0 && findCell((int) event.getX(), (int) event.getY()) != mPressedCell) {
+                    mPressedCell = -1;
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+                if (mPressedCell >= 0 && findCell((int) event.getX(), (int) event.getY()) == mPressedCell) {
+                    mClickedCell = mPressedCell;
+                    performClick();
+                }
+                mPressedCell = -1;
+                mCellGesture = false;
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                mPressedCell = -1;
+                mCellGesture = false;
+                break;
+        }
+        return true;
+    }
+
+    //点击格子时只回调clickAdapter，和普通模式一样不触发九宫格自身的点击事件
+    @Override
+    public boolean performClick() {
+        int clickedCell = mClickedCell;
+        mClickedCell = -1;
+        if (mFlattened && clickedCell >= 0) {
+            return performCellClick(clickedCell);
         }
-        if (mImageDatas != null){
-            mImageDatas.clear();
+        return super.performClick();
+    }
+
+    /**
+     * 扁平模式下点击格子
+     * @param position 格子位置
+     * @return 是否处理了点击
+     */
+    private boolean performCellClick(int position) {
+        if (clickAdapter == null || mImageDatas == null || position >= getNeedShowCount(mImageDatas.size())) {
+            return false;
+        }
+        playSoundEffect(SoundEffectConstants.CLICK);
+        clickAdapter.onImageClick(position, mReadOnlyImageDatas, null);
+        if (mAccessibilityHelper != null) {
+            mAccessibilityHelper.sendEventForVirtualView(position, AccessibilityEvent.TYPE_VIEW_CLICKED);
+        }
+        return true;
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        if (mFlattened && mAccessibilityHelper != null && mAccessibilityHelper.dispatchHoverEvent(event)) {
+            return true;
+        }
+        return super.dispatchHoverEvent(event);
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        if (mFlattened && mAccessibilityHelper != null && mAccessibilityHelper.dispatchKeyEvent(event)) {
+            return true;
+        }
+        return super.dispatchKeyEvent(event);
+    }
+
+    /**
+     * 查找坐标所在的格子
+     * @return 不在任何格子中时返回-1
+     */
+    private int findCell(int x, int y) {
+        if (mImageDatas == null) return -1;
+        int count = getNeedShowCount(mImageDatas.size());
+        int[] rects = getCellRects(count, getMeasuredWidth());
+        for (int i = 0, j = 0; i < count; i++, j += 4) {
+            if (x >= rects[j] && x < rects[j + 2] && y >= rects[j + 1] && y < rects[j + 3]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnScrollChangedListener(mScrollChangedListener);
+        if (mDirtyCells != 0 && !isLayoutRequested()) {
+            bindImages();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        getViewTreeObserver().removeOnScrollChangedListener(mScrollChangedListener);
+        removeCallbacks(mLazyBindRunnable);
+        //取消的格子重新添加到窗口后再加载
+        int boundCells = mBoundCells;
+        for (int i = 0; i < getCellCount(); i++) {
+            cancelCell(i);
+        }
+        mDirtyCells |= boundCells;
+    }
+
+    /**
+     * 计算指定宽度下格子的大小，可以在布局之前用于图片按大小解码
+     * 数量和当前数据一致时使用当前数据的宽高提示，其他数据需要宽高提示时使用{@link #getCellSize(int, List, int, int[])}
+     * @param width 九宫格宽度px，包含padding
+     * @param count 图片数量
+     * @param index 格子位置
+     * @param outSize 输出宽高，outSize[0]为宽，outSize[1]为高
+     * @return 参数不合法时返回false
+     */
+    public boolean getCellSize(int width, int count, int index, int[] outSize) {
+        count = getNeedShowCount(count);
+        boolean current = mImageDatas != null && getNeedShowCount(mImageDatas.size()) == count;
+        return getCellSize(width, count, current ? mHintAspect : 0, index, outSize);
+    }
+
+    /**
+     * 按指定数据计算格子的大小，和绑定时一样使用adapter的宽高提示
+     * @param width 九宫格宽度px，包含padding
+     * @param imageData 图片数据
+     * @param index 格子位置
+     * @param outSize 输出宽高，outSize[0]为宽，outSize[1]为高
+     * @return 参数不合法时返回false
+     */
+    public boolean getCellSize(int width, List<T> imageData, int index, int[] outSize) {
+        if (imageData == null) return false;
+        return getCellSize(width, getNeedShowCount(imageData.size()), computeHintAspect(imageData), index, outSize);
+    }
+
+    private boolean getCellSize(int width, int count, float hintAspect, int index, int[] outSize) {
+        if (width <= 0 || index < 0 || index >= count) return false;
+        if (mQueryGeometry == null) {
+            mQueryGeometry = new NineGridGeometry();
+        }
+        mQueryGeometry.update(mLayoutStrategy, width, mGap, getPaddingLeft(), getPaddingTop(), getPaddingRight(), getPaddingBottom());
+        int[] rects = mQueryGeometry.getCellRects(count);
+        if (hintAspect > 0) {
+            NineGridSizeHint.applyAspect(rects, count, hintAspect, mHintSizeRects);
+            rects = mHintSizeRects;
+        }
+        outSize[0] = rects[index * 4 + 2] - rects[index * 4];
+        outSize[1] = rects[index * 4 + 3] - rects[index * 4 + 1];
+        return true;
+    }
+
+    /**
+     * 按当前测量宽度和数据计算格子的大小
+     * @param index 格子位置
+     * @param outSize 输出宽高，outSize[0]为宽，outSize[1]为高
+     * @return 还没有测量或者位置不合法时返回false
+     */
+    public boolean getCellSize(int index, int[] outSize) {
+        int width = getMeasuredWidth();
+        int count = mImageDatas != null ? getNeedShowCount(mImageDatas.size()) : 0;
+        if (width <= 0 || index < 0 || index >= count) return false;
+        int[] rects = getCellRects(count, width);
+        outSize[0] = rects[index * 4 + 2] - rects[index * 4];
+        outSize[1] = rects[index * 4 + 3] - rects[index * 4 + 1];
+        return true;
+    }
+
+    /**
+     * 判断两个数据是否为同一张图片
+     */
+    private boolean isSameImage(T oldData, T newData) {
+        Object oldKey = keyAdapter != null ? keyAdapter.getKey(oldData) : oldData;
+        Object newKey = keyAdapter != null ? keyAdapter.getKey(newData) : newData;
+        return oldKey == null ? newKey == null : oldKey.equals(newKey);
+    }
+
+    /**
+     * 设置图片数据源
+     * @param imageData 展示的图片不为空
+     */
+    public void setImageData(@NotNull List<T> imageData){
+        int oldCount = mImageDatas != null ? getNeedShowCount(mImageDatas.size()) : 0;
+        int newCount = getNeedShowCount(imageData.size());
+        //数量和高宽比相同并且已经布局完成时，大小和位置都不会变化
+        float hintAspect = computeHintAspect(imageData);
+        boolean sameShape = oldCount == newCount && hintAspect == mHintAspect && mLayoutPassCount > 0 && !isLayoutRequested();
+        mHintAspect = hintAspect;
+        //对比新旧数据，只标记变化的格子，不复制模式下同一个list直接跳过
+        boolean sameList = !mCopyImageData && imageData == mImageDatas;
+        for (int i = 0; i < newCount; i++) {
+            if (i >= oldCount || !sameList && !isSameImage(mImageDatas.get(i), imageData.get(i))) {
+                mDirtyCells |= 1 << i;
+            }
+        }
+        mDirtyCells &= (1 << newCount) - 1;
+        for (int i = newCount; i < oldCount; i++) {
+            cancelCell(i);
+        }
+        resizeCells(oldCount, newCount);
+        if (mCopyImageData){
+            if (mCopiedImageDatas != null){
+                mCopiedImageDatas.clear();
+            }else{
+                mCopiedImageDatas = new ArrayList<>();
+                mReadOnlyCopiedImageDatas = Collections.unmodifiableList(mCopiedImageDatas);
+            }
+            mCopiedImageDatas.addAll(imageData);
+            mImageDatas = mCopiedImageDatas;
+            mReadOnlyImageDatas = mReadOnlyCopiedImageDatas;
+        }else{
+            //数据由调用方保证不可变，直接持有引用
+            mImageDatas = imageData;
+            mReadOnlyImageDatas = imageData;
+        }
+        updateOverflowText();
+        if (sameShape){
+            if (mFlattened && mAccessibilityHelper != null) {
+                mAccessibilityHelper.invalidateRoot();
+            }
+            bindImages();
         }else{
-            mImageDatas = new ArrayList<>();
+            requestLayout();
         }
-        if (mImageDatas != null) {
-            mImageDatas.addAll(imageData);
+    }
+
+    /**
+     * 设置数据时是否复制，默认复制
+     * 不复制时直接持有传入的list，调用方需要保证list不会再被修改，点击事件中也会直接返回该list
+     * @param copyImageData 是否复制
+     */
+    public void setCopyImageData(boolean copyImageData) {
+        mCopyImageData = copyImageData;
+    }
+
+    /**
+     * 设置扁平模式，开启后不创建ImageView，所有格子在onDraw中绘制，点击时回调的imageView为null
+     * 图片通过{@link NineGridImageAdapter#setCellImage}加载
+     * @param flattened 是否开启
+     */
+    public void setFlattened(boolean flattened) {
+        if (mFlattened == flattened) return;
+        int count = getCellCount();
+        for (int i = 0; i < count; i++) {
+            cancelCell(i);
         }
+        resizeCells(count, 0);
+        mFlattened = flattened;
+        setWillNotDraw(!flattened);
+        //扁平模式没有子view，通过虚拟节点让无障碍服务可以访问每个格子
+        if (flattened) {
+            if (mAccessibilityHelper == null) {
+                mAccessibilityHelper = new CellAccessibilityHelper();
+            }
+            ViewCompat.setAccessibilityDelegate(this, mAccessibilityHelper);
+        } else {
+            ViewCompat.setAccessibilityDelegate(this, null);
+        }
+        resizeCells(0, count);
+        mDirtyCells = (1 << count) - 1;
+        requestLayout();
+    }
+
+    /**
+     * 设置预先计算的尺寸，参数和当前数据、宽度、间隔、padding、布局规则一致时直接使用，不一致时自行计算
+     * 列表中可以在后台线程通过{@link NineGridMetrics#compute}计算好后在绑定时设置
+     * @param metrics 为空时自行计算
+     */
+    public void setMetrics(NineGridMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * 设置布局规则
+     * @param layoutStrategy 为空时使用默认九宫格规则
+     */
+    public void setLayoutStrategy(NineGridLayoutStrategy layoutStrategy) {
+        if (layoutStrategy == null) {
+            layoutStrategy = NineGridDefaultLayoutStrategy.INSTANCE;
+        }
+        if (mLayoutStrategy == layoutStrategy) return;
+        int maxCount = layoutStrategy.getMaxCount();
+        if (maxCount <= 0 || maxCount > MAX_CELL_COUNT) {
+            throw new IllegalArgumentException("max count must be in 1.." + MAX_CELL_COUNT + ", was " + maxCount);
+        }
+        int count = getCellCount();
+        for (int i = 0; i < count; i++) {
+            cancelCell(i);
+        }
+        resizeCells(count, 0);
+        mLayoutStrategy = layoutStrategy;
+        if (mCellTargets.length != maxCount) {
+            mCellTargets = new NineGridCellTarget[maxCount];
+            mBoundWidths = new int[maxCount];
+            mBoundHeights = new int[maxCount];
+        }
+        count = mImageDatas != null ? getNeedShowCount(mImageDatas.size()) : 0;
+        resizeCells(0, count);
+        mDirtyCells = (1 << count) - 1;
+        mHintAspect = computeHintAspect(mImageDatas);
+        updateOverflowText();
         requestLayout();
     }
 
+    /**
+     * 设置宽高提示的高宽比范围，超出范围时按最小或最大值布局，图片按centerCrop裁剪
+     * @param minAspect 最小高宽比
+     * @param maxAspect 最大高宽比
+     */
+    public void setSizeHintAspectRange(float minAspect, float maxAspect) {
+        mMinHintAspect = minAspect;
+        mMaxHintAspect = maxAspect;
+        updateHintAspect();
+    }
+
+    /**
+     * 设置超出模式，数据超过最大数量时在最后一个格子上绘制"+N"，不创建额外的view
+     * @param overflowMode 是否开启
+     */
+    public void setOverflowMode(boolean overflowMode) {
+        mOverflowMode = overflowMode;
+        updateOverflowText();
+    }
+
+    /**
+     * 设置超出数量的样式
+     * @param maskColor 蒙层颜色
+     * @param textColor 文字颜色
+     * @param textSize 文字大小px，不大于0时按格子高度计算
+     */
+    public void setOverflowStyle(int maskColor, int textColor, float textSize) {
+        mOverflowMaskColor = maskColor;
+        mOverflowTextColor = textColor;
+        mOverflowTextSize = textSize;
+        invalidate();
+    }
+
     /**
      * 设置图片间隔
      * @param mGap 图片间隔px
      */
     public void setGap(int mGap) {
-        this.mGap = mGap;
+        if (this.mGap != mGap){
+            this.mGap = mGap;
+            requestLayout();
+        }
+    }
+
+    /**
+     * 获取onLayout执行的次数，可以用于统计重复绑定时省去的布局
+     * @return onLayout执行次数
+     */
+    public int getLayoutPassCount() {
+        return mLayoutPassCount;
     }
 
     /**
-     * 设置图片加载adapter
+     * 设置共享的ImageView回收池，多个九宫格设置同一个池可以复用ImageView
+     * @param viewPool 回收池，为空时每个九宫格单独持有ImageView
+     */
+    public void setViewPool(NineGridViewPool viewPool) {
+        mViewPool = viewPool;
+        if (mViewPool != null){
+            recycleImageViews(getChildCount());
+        }
+    }
+
+    /**
+     * 设置懒加载，开启后九宫格可见并停留一段时间后才加载图片，快速滑动经过时不会加载
+     * @param lazyLoad 是否开启
+     */
+    public void setLazyLoad(boolean lazyLoad) {
+        mLazyLoad = lazyLoad;
+    }
+
+    /**
+     * 设置懒加载的触发条件
+     * @param visibleFraction 可见面积比例，0~1
+     * @param dwellTime 停留时间ms
+     */
+    public void setLazyLoadThreshold(float visibleFraction, long dwellTime) {
+        mLazyVisibleFraction = visibleFraction;
+        mLazyDwellTime = dwellTime;
+    }
+
+    /**
+     * 设置图片加载adapter，列表中重复设置同一个adapter时不会重新加载
      */
     public void setImageAdapter(NineGridImageAdapter<T> imageAdapter) {
+        if (this.imageAdapter == imageAdapter) return;
+        //用旧的adapter取消已经开始加载的格子
+        int count = getCellCount();
+        for (int i = 0; i < count; i++) {
+            cancelCell(i);
+        }
         this.imageAdapter = imageAdapter;
+        mDirtyCells = (1 << mCellTargets.length) - 1;
+        float hintAspect = computeHintAspect(mImageDatas);
+        if (hintAspect == mHintAspect && mLayoutPassCount > 0 && !isLayoutRequested()) {
+            bindImages();
+        } else {
+            mHintAspect = hintAspect;
+            requestLayout();
+        }
+    }
+
+    /**
+     * 设置数据比较的key，重新设置数据时key相同的格子不会重新加载图片
+     * @param keyAdapter 为空时使用数据的equals
+     */
+    public void setKeyAdapter(NineGridKeyAdapter<T> keyAdapter) {
+        this.keyAdapter = keyAdapter;
     }
 
     /**
@@ -241,4 +957,56 @@ public class NineGridView<T> extends ViewGroup {
     public void setClickAdapter(NineGridClickAdapter<T> clickAdapter) {
         this.clickAdapter = clickAdapter;
     }
+
+    /**
+     * 扁平模式下的无障碍支持，每个格子对应一个虚拟节点
+     */
+    private class CellAccessibilityHelper extends ExploreByTouchHelper {
+
+        private final Rect mCellBounds = new Rect();
+
+        CellAccessibilityHelper() {
+            super(NineGridView.this);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            int position = findCell((int) x, (int) y);
+            return position >= 0 ? position : INVALID_ID;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            int count = mImageDatas != null ? getNeedShowCount(mImageDatas.size()) : 0;
+            for (int i = 0; i < count; i++) {
+                virtualViewIds.add(i);
+            }
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, AccessibilityNodeInfoCompat node) {
+            int count = mImageDatas != null ? getNeedShowCount(mImageDatas.size()) : 0;
+            if (virtualViewId < count) {
+                int[] rects = getCellRects(count, getMeasuredWidth());
+                int j = virtualViewId * 4;
+                mCellBounds.set(rects[j], rects[j + 1], rects[j + 2], rects[j + 3]);
+            } else {
+                mCellBounds.set(0, 0, 1, 1);
+            }
+            node.setBoundsInParent(mCellBounds);
+            node.setContentDescription("图片" + (virtualViewId + 1) + "/" + count);
+            if (clickAdapter != null) {
+                node.setClickable(true);
+                node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+            }
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, Bundle arguments) {
+            if (action == AccessibilityNodeInfoCompat.ACTION_CLICK) {
+                return performCellClick(virtualViewId);
+            }
+            return false;
+        }
+    }
 }
@@ -0,0 +1,87 @@
+package com.realcloud.view;
+
+import android.widget.ImageView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by zack on 2018/12/7.
+ * 多个九宫格共享的ImageView回收池
+ * 参考RecyclerView.RecycledViewPool，只在主线程使用
+ * 九宫格减少图片时把多余的ImageView放回池中，增加图片时优先从池中获取
+ */
+
+public class NineGridViewPool {
+
+    public static final int DEFAULT_MAX_RECYCLED_VIEWS = 3 * NineGridView.DEFAULT_MAX_IMAGE; //默认最多缓存的view数量
+
+    private final List<ImageView> mScrap = new ArrayList<>(); //缓存的view
+
+    private int mMaxRecycledViews;
+
+    private int mHitCount; //从池中获取成功的次数
+
+    private int mMissCount; //池中没有view需要新建的次数
+
+    public NineGridViewPool() {
+        this(DEFAULT_MAX_RECYCLED_VIEWS);
+    }
+
+    public NineGridViewPool(int maxRecycledViews) {
+        mMaxRecycledViews = maxRecycledViews;
+    }
+
+    /**
+     * 设置最多缓存的view数量，超出的部分直接丢弃
+     * @param maxRecycledViews 最大数量
+     */
+    public void setMaxRecycledViews(int maxRecycledViews) {
+        mMaxRecycledViews = maxRecycledViews;
+        while (mScrap.size() > maxRecycledViews) {
+            mScrap.remove(mScrap.size() - 1);
+        }
+    }
+
+    /**
+     * 从池中获取view
+     * @return 池为空时返回null
+     */
+    ImageView getRecycledView() {
+        if (mScrap.isEmpty()) {
+            mMissCount++;
+            return null;
+        }
+        mHitCount++;
+        return mScrap.remove(mScrap.size() - 1);
+    }
+
+    /**
+     * 回收view，超出最大数量时丢弃
+     * @param imageView 已经从父view中移除的view
+     */
+    void putRecycledView(ImageView imageView) {
+        if (mScrap.size() < mMaxRecycledViews) {
+            mScrap.add(imageView);
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        mScrap.clear();
+    }
+
+    public int getRecycledViewCount() {
+        return mScrap.size();
+    }
+
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    public int getMissCount() {
+        return mMissCount;
+    }
+}
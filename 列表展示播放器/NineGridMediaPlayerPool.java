@@ -0,0 +1,216 @@
+package com.realcloud.view.video.basecomponent;
+
+import android.content.Context;
+import android.media.AudioManager;
+import android.os.PowerManager;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import tv.danmaku.ijk.media.player.AndroidMediaPlayer;
+import tv.danmaku.ijk.media.player.IMediaPlayer;
+import tv.danmaku.ijk.media.player.IjkMediaPlayer;
+
+/**
+ * 播放器实例池
+ * 缓存reset之后的IMediaPlayer，下次播放时直接取出复用，省去native播放器的创建
+ * 超出容量时释放最久没有使用的实例
+ * reset和release都在单独的线程按顺序执行，不阻塞主线程
+ */
+public class NineGridMediaPlayerPool {
+
+    /**
+     * 默认缓存的播放器数量
+     */
+    public static final int DEFAULT_MAX_SIZE = 2;
+
+    //按归还顺序排列，最后一个为最近归还的
+    private final LinkedList<IMediaPlayer> mPlayers = new LinkedList<>();
+
+    private int mMaxSize = DEFAULT_MAX_SIZE;
+
+    //释放播放器的线程，单线程保证按提交顺序执行
+    private final ExecutorService mReleaseExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, "NineGridPlayerRelease");
+        }
+    });
+
+    /**
+     * 设置缓存的播放器数量，超出的部分立即释放
+     * @param maxSize 最大数量
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        mMaxSize = maxSize;
+        releaseAsync(trimToSize(maxSize));
+    }
+
+    /**
+     * 预先创建播放器
+     * @param context 上下文
+     * @param playerType 播放器类型
+     * @param count 创建数量，不超过最大数量
+     */
+    public synchronized void warmUp(Context context, int playerType, int count) {
+        for (int i = 0; i < count && mPlayers.size() < mMaxSize; i++) {
+            mPlayers.addFirst(createMediaPlayer(context, playerType));
+        }
+    }
+
+    /**
+     * 获取播放器，优先使用最近归还的同类型实例
+     * @param context 上下文
+     * @param playerType 播放器类型
+     * @return 可以直接setDataSource的播放器
+     */
+    public IMediaPlayer acquire(Context context, int playerType) {
+        synchronized (this) {
+            Iterator<IMediaPlayer> iterator = mPlayers.descendingIterator();
+            while (iterator.hasNext()) {
+                IMediaPlayer mediaPlayer = iterator.next();
+                if (getPlayerType(mediaPlayer) == playerType) {
+                    iterator.remove();
+                    return mediaPlayer;
+                }
+            }
+        }
+        return createMediaPlayer(context, playerType);
+    }
+
+    /**
+     * 归还播放器，在释放线程reset后放入池中
+     * 调用后马上可以释放播放器使用的surface
+     * @param mediaPlayer 不再使用的播放器
+     */
+    public void recycle(final IMediaPlayer mediaPlayer) {
+        //监听和surface在当前线程清除，之后不会再回调到之前的播放器界面
+        mediaPlayer.setOnPreparedListener(null);
+        mediaPlayer.setOnVideoSizeChangedListener(null);
+        mediaPlayer.setOnCompletionListener(null);
+        mediaPlayer.setOnErrorListener(null);
+        mediaPlayer.setOnInfoListener(null);
+        mediaPlayer.setOnBufferingUpdateListener(null);
+        mediaPlayer.setSurface(null);
+        mReleaseExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean keep;
+                synchronized (NineGridMediaPlayerPool.this) {
+                    keep = mMaxSize > 0;
+                }
+                if (!keep) {
+                    mediaPlayer.release();
+                    return;
+                }
+                resetMediaPlayer(mediaPlayer);
+                List<IMediaPlayer> evicted;
+                synchronized (NineGridMediaPlayerPool.this) {
+                    mPlayers.addLast(mediaPlayer);
+                    evicted = trimToSize(mMaxSize);
+                }
+                for (int i = 0; i < evicted.size(); i++) {
+                    evicted.get(i).release();
+                }
+            }
+        });
+    }
+
+    /**
+     * 在释放线程释放播放器，不放入池中
+     * @param mediaPlayer 不再使用的播放器
+     */
+    public void releaseAsync(final IMediaPlayer mediaPlayer) {
+        mReleaseExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mediaPlayer.release();
+            }
+        });
+    }
+
+    /**
+     * 释放池中所有播放器
+     */
+    public synchronized void clear() {
+        releaseAsync(trimToSize(0));
+    }
+
+    private void releaseAsync(List<IMediaPlayer> mediaPlayers) {
+        for (int i = 0; i < mediaPlayers.size(); i++) {
+            releaseAsync(mediaPlayers.get(i));
+        }
+    }
+
+    /**
+     * 移除超出数量的播放器
+     * @return 被移除的播放器，需要调用方释放
+     */
+    private List<IMediaPlayer> trimToSize(int maxSize) {
+        List<IMediaPlayer> evicted = new ArrayList<>();
+        while (mPlayers.size() > maxSize) {
+            evicted.add(mPlayers.removeFirst());
+        }
+        return evicted;
+    }
+
+    /**
+     * 清除上一次播放的状态，在释放线程调用
+     */
+    private static void resetMediaPlayer(IMediaPlayer mediaPlayer) {
+        mediaPlayer.reset();
+        if (mediaPlayer instanceof IjkMediaPlayer) {
+            //IjkMediaPlayer reset之后option会被清空
+            applyIjkOptions((IjkMediaPlayer) mediaPlayer);
+        }
+        mediaPlayer.setAudioStreamType(AudioManager.STREAM_MUSIC);
+    }
+
+    private static int getPlayerType(IMediaPlayer mediaPlayer) {
+        return mediaPlayer instanceof IjkMediaPlayer ? INineGridVideoPlayer.TYPE_IJK : INineGridVideoPlayer.TYPE_NATIVE;
+    }
+
+    /**
+     * 创建播放器
+     */
+    static IMediaPlayer createMediaPlayer(Context context, int playerType) {
+        IMediaPlayer mediaPlayer;
+        switch (playerType) {
+            case INineGridVideoPlayer.TYPE_NATIVE:
+                mediaPlayer = new AndroidMediaPlayer();
+                break;
+            case INineGridVideoPlayer.TYPE_IJK:
+            default:
+                IjkMediaPlayer ijkMediaPlayer = new IjkMediaPlayer(context.getApplicationContext());
+                applyIjkOptions(ijkMediaPlayer);
+                ijkMediaPlayer.setWakeMode(context.getApplicationContext(), PowerManager.PARTIAL_WAKE_LOCK);
+                mediaPlayer = ijkMediaPlayer;
+                break;
+        }
+        mediaPlayer.setAudioStreamType(AudioManager.STREAM_MUSIC);
+        return mediaPlayer;
+    }
+
+    private static void applyIjkOptions(IjkMediaPlayer mediaPlayer) {
+        mediaPlayer.setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "overlay-format", 842225234L);
+        mediaPlayer.setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "framedrop", 12L);
+        mediaPlayer.setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "start-on-prepared", 1L);
+        mediaPlayer.setOption(IjkMediaPlayer.OPT_CATEGORY_FORMAT, "http-detect-range-support", 0L);
+        mediaPlayer.setOption(IjkMediaPlayer.OPT_CATEGORY_CODEC, "skip_loop_filter", 0L);
+        mediaPlayer.setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "max_cached_duration", 0);
+        mediaPlayer.setOption(IjkMediaPlayer.OPT_CATEGORY_FORMAT, "analyzeduration", 0L);
+        mediaPlayer.setOption(IjkMediaPlayer.OPT_CATEGORY_FORMAT, "probesize", 131072L);
+        mediaPlayer.setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "live-streaming", 0);
+        mediaPlayer.setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "get-av-frame-timeout", 10000000L);
+        mediaPlayer.setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "mediacodec", 0);
+        mediaPlayer.setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "delay-optimization", 0L);
+        mediaPlayer.setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "cache-buffer-duration", 2000L);
+        mediaPlayer.setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "max-cache-buffer-duration", 4000L);
+        mediaPlayer.setOption(IjkMediaPlayer.OPT_CATEGORY_FORMAT, "reconnect", 1L);
+    }
+}
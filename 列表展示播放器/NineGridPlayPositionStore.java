@@ -0,0 +1,155 @@
+package com.realcloud.view.video.basecomponent;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 播放位置存储
+ * 内存中按最近使用保存有限数量的位置，key为url的hash
+ * 第一次使用时在后台线程加载，修改后延迟批量写入SharedPreferences
+ * 写入时同时保存最近使用的顺序，重启后按原顺序恢复
+ */
+public class NineGridPlayPositionStore {
+
+    /**
+     * 默认最多保存的位置数量
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 200;
+
+    private static final String PREFS_NAME = "NINE_GRID_VIDEO_PLAY_POSITION_STORE";
+    //旧版本不限数量保存位置的文件，加载时清空
+    private static final String LEGACY_PREFS_NAME = "NINE_GRID__PALYER_PLAY_POSITION";
+    //按最近使用顺序保存的key，最久没有使用的在前，用逗号分隔
+    private static final String KEY_ORDER = "order";
+    private static final long FLUSH_DELAY = 3000;
+
+    private static NineGridPlayPositionStore sInstance;
+
+    private final SharedPreferences mPreferences;
+    private final SharedPreferences mLegacyPreferences;
+    private final LinkedHashMap<String, Long> mPositions;
+    private boolean mFlushScheduled;
+
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private NineGridPlayPositionStore(Context context, final int maxEntries) {
+        mPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        mLegacyPreferences = context.getSharedPreferences(LEGACY_PREFS_NAME, Context.MODE_PRIVATE);
+        mPositions = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        NineGridUtil.getDiskExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        });
+    }
+
+    public static synchronized NineGridPlayPositionStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new NineGridPlayPositionStore(context.getApplicationContext(), DEFAULT_MAX_ENTRIES);
+        }
+        return sInstance;
+    }
+
+    /**
+     * 保存播放位置，延迟批量写入磁盘
+     * @param url 视频地址
+     * @param position 播放位置ms
+     */
+    public void put(String url, long position) {
+        if (url == null) return;
+        synchronized (this) {
+            mPositions.put(getKey(url), position);
+            if (mFlushScheduled) return;
+            mFlushScheduled = true;
+        }
+        NineGridUtil.getDiskExecutor().schedule(mFlushRunnable, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 获取播放位置，只读取内存，后台加载完成之前没有保存的位置返回0
+     * @param url 视频地址
+     * @return 播放位置ms
+     */
+    public synchronized long get(String url) {
+        if (url == null) return 0;
+        Long position = mPositions.get(getKey(url));
+        return position != null ? position : 0;
+    }
+
+    private void load() {
+        if (!mLegacyPreferences.getAll().isEmpty()) {
+            mLegacyPreferences.edit().clear().commit();
+        }
+        Map<String, ?> saved = mPreferences.getAll();
+        Object order = saved.get(KEY_ORDER);
+        synchronized (this) {
+            //加载之前保存的位置更新，放在最后作为最近使用
+            LinkedHashMap<String, Long> recent = new LinkedHashMap<>(mPositions);
+            mPositions.clear();
+            if (order instanceof String && ((String) order).length() > 0) {
+                for (String key : ((String) order).split(",")) {
+                    Object value = saved.get(key);
+                    if (value instanceof Long) {
+                        mPositions.put(key, (Long) value);
+                    }
+                }
+            }
+            //没有顺序的旧数据
+            for (Map.Entry<String, ?> entry : saved.entrySet()) {
+                if (entry.getValue() instanceof Long && !mPositions.containsKey(entry.getKey())) {
+                    mPositions.put(entry.getKey(), (Long) entry.getValue());
+                }
+            }
+            for (Map.Entry<String, Long> entry : recent.entrySet()) {
+                mPositions.remove(entry.getKey());
+                mPositions.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void flush() {
+        Map<String, Long> snapshot;
+        synchronized (this) {
+            mFlushScheduled = false;
+            snapshot = new LinkedHashMap<>(mPositions);
+        }
+        SharedPreferences.Editor editor = mPreferences.edit().clear();
+        StringBuilder order = new StringBuilder(snapshot.size() * 17);
+        for (Map.Entry<String, Long> entry : snapshot.entrySet()) {
+            editor.putLong(entry.getKey(), entry.getValue());
+            if (order.length() > 0) {
+                order.append(',');
+            }
+            order.append(entry.getKey());
+        }
+        editor.putString(KEY_ORDER, order.toString());
+        editor.commit();
+    }
+
+    /**
+     * url的64位FNV-1a hash，比完整url短
+     */
+    private static String getKey(String url) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < url.length(); i++) {
+            hash ^= url.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return Long.toHexString(hash);
+    }
+}
@@ -0,0 +1,130 @@
+package com.realcloud.view.video.basecomponent;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 播放器全局设置：是否打开声音、播放速度、是否循环播放
+ * 进程内共用一份，第一次使用时在后台线程加载，修改后延迟批量写入
+ * 所有播放器从这里读取默认值
+ */
+public class NineGridPlayerSettings {
+
+    private static final String PREFS_NAME = "NINE_GRID_VIDEO_PALYER_PLAY_POSITION";
+    private static final String KEY_VOLUME_ENABLE = "NINE_GRID_VIDEO_VOLUME_ENABLE";
+    private static final String KEY_SPEED = "NINE_GRID_VIDEO_SPEED";
+    private static final String KEY_LOOP = "NINE_GRID_VIDEO_LOOP";
+    private static final long FLUSH_DELAY = 1000;
+
+    //加载完成之前被修改的设置，加载时不覆盖
+    private static final int FLAG_VOLUME_ENABLE = 1;
+    private static final int FLAG_SPEED = 1 << 1;
+    private static final int FLAG_LOOP = 1 << 2;
+
+    private static NineGridPlayerSettings sInstance;
+
+    private final SharedPreferences mPreferences;
+    private boolean mLoaded;
+    private int mModifiedFlags;
+    private boolean mFlushScheduled;
+
+    private volatile boolean mVolumeEnable = false;
+    private volatile float mSpeed = 1f;
+    private volatile boolean mLoop = false;
+
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private NineGridPlayerSettings(Context context) {
+        mPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        NineGridUtil.getDiskExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        });
+    }
+
+    public static synchronized NineGridPlayerSettings getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new NineGridPlayerSettings(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    public boolean isVolumeEnable() {
+        return mVolumeEnable;
+    }
+
+    /**
+     * 设置是否打开声音
+     */
+    public void setVolumeEnable(boolean volumeEnable) {
+        mVolumeEnable = volumeEnable;
+        onModified(FLAG_VOLUME_ENABLE);
+    }
+
+    public float getSpeed() {
+        return mSpeed;
+    }
+
+    /**
+     * 设置默认播放速度，目前只有IjkPlayer有效果
+     */
+    public void setSpeed(float speed) {
+        mSpeed = speed;
+        onModified(FLAG_SPEED);
+    }
+
+    public boolean isLoop() {
+        return mLoop;
+    }
+
+    /**
+     * 设置默认是否循环播放
+     */
+    public void setLoop(boolean loop) {
+        mLoop = loop;
+        onModified(FLAG_LOOP);
+    }
+
+    private void onModified(int flag) {
+        synchronized (this) {
+            if (!mLoaded) {
+                mModifiedFlags |= flag;
+            }
+            if (mFlushScheduled) return;
+            mFlushScheduled = true;
+        }
+        NineGridUtil.getDiskExecutor().schedule(mFlushRunnable, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    private void load() {
+        boolean volumeEnable = mPreferences.getBoolean(KEY_VOLUME_ENABLE, false);
+        float speed = mPreferences.getFloat(KEY_SPEED, 1f);
+        boolean loop = mPreferences.getBoolean(KEY_LOOP, false);
+        synchronized (this) {
+            if ((mModifiedFlags & FLAG_VOLUME_ENABLE) == 0) mVolumeEnable = volumeEnable;
+            if ((mModifiedFlags & FLAG_SPEED) == 0) mSpeed = speed;
+            if ((mModifiedFlags & FLAG_LOOP) == 0) mLoop = loop;
+            mLoaded = true;
+        }
+    }
+
+    private void flush() {
+        synchronized (this) {
+            mFlushScheduled = false;
+        }
+        mPreferences.edit()
+                .putBoolean(KEY_VOLUME_ENABLE, mVolumeEnable)
+                .putFloat(KEY_SPEED, mSpeed)
+                .putBoolean(KEY_LOOP, mLoop)
+                .commit();
+    }
+}
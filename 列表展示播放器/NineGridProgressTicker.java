@@ -0,0 +1,87 @@
+package com.realcloud.view.video.basecomponent;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 所有控制器共用的进度更新计时器
+ * 在主线程用同一个Runnable循环post，没有需要更新的控制器时自动停止
+ */
+public final class NineGridProgressTicker {
+
+    /**
+     * 默认更新间隔ms
+     */
+    public static final long DEFAULT_INTERVAL = 1000;
+
+    private static NineGridProgressTicker sInstance;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final List<NineGridVideoPlayerController> mControllers = new ArrayList<>();
+    private long mInterval = DEFAULT_INTERVAL;
+    private boolean mRunning;
+
+    private final Runnable mTickRunnable = new Runnable() {
+        @Override
+        public void run() {
+            //倒序遍历，更新时控制器可能取消注册
+            for (int i = mControllers.size() - 1; i >= 0; i--) {
+                if (i >= mControllers.size()) continue;
+                NineGridVideoPlayerController controller = mControllers.get(i);
+                if (controller.isShown()) {
+                    controller.updateProgress();
+                }
+            }
+            if (mControllers.isEmpty()) {
+                mRunning = false;
+            } else {
+                mHandler.postDelayed(this, mInterval);
+            }
+        }
+    };
+
+    private NineGridProgressTicker() {
+    }
+
+    public static NineGridProgressTicker getInstance() {
+        if (sInstance == null) {
+            sInstance = new NineGridProgressTicker();
+        }
+        return sInstance;
+    }
+
+    /**
+     * 设置更新间隔，下一次更新后生效
+     * @param interval 间隔ms
+     */
+    public void setInterval(long interval) {
+        mInterval = interval;
+    }
+
+    /**
+     * 注册需要更新进度的控制器，只能在主线程调用
+     */
+    void register(NineGridVideoPlayerController controller) {
+        if (!mControllers.contains(controller)) {
+            mControllers.add(controller);
+        }
+        if (!mRunning) {
+            mRunning = true;
+            mHandler.post(mTickRunnable);
+        }
+    }
+
+    /**
+     * 取消注册，只能在主线程调用
+     */
+    void unregister(NineGridVideoPlayerController controller) {
+        mControllers.remove(controller);
+        if (mControllers.isEmpty() && mRunning) {
+            mHandler.removeCallbacks(mTickRunnable);
+            mRunning = false;
+        }
+    }
+}
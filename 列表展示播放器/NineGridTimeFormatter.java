@@ -0,0 +1,30 @@
+package com.realcloud.view.video.basecomponent;
+
+/**
+ * 播放时间格式化，每个使用者持有自己的实例
+ * 秒数和上一次相同时直接返回上一次的结果，进度每次更新时不会重复创建字符串
+ * 只能在一个线程中使用
+ */
+public class NineGridTimeFormatter {
+
+    private final StringBuilder mBuilder = new StringBuilder(8);
+    private long mLastSeconds = -1;
+    private String mLastText;
+
+    /**
+     * 将毫秒数格式化为"##:##"的时间
+     *
+     * @param milliseconds 毫秒数
+     * @return ##:##
+     */
+    public String format(long milliseconds) {
+        long totalSeconds = milliseconds <= 0 || milliseconds >= 24 * 60 * 60 * 1000 ? 0 : milliseconds / 1000;
+        if (totalSeconds != mLastSeconds) {
+            mBuilder.setLength(0);
+            NineGridUtil.formatTime(milliseconds, mBuilder);
+            mLastSeconds = totalSeconds;
+            mLastText = mBuilder.toString();
+        }
+        return mLastText;
+    }
+}
@@ -9,14 +9,35 @@ import android.support.v7.view.ContextThemeWrapper;
 import android.util.TypedValue;
 import android.view.WindowManager;
 
-import java.util.Formatter;
-import java.util.Locale;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * 工具类.
  */
 public class NineGridUtil {
 
+    private static ScheduledExecutorService sDiskExecutor;
+
+    /**
+     * 读写播放器本地数据的后台线程，单线程按顺序执行
+     * @return 共用的线程
+     */
+    static synchronized ScheduledExecutorService getDiskExecutor() {
+        if (sDiskExecutor == null) {
+            sDiskExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "NineGridDisk");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sDiskExecutor;
+    }
+
     /**
      * Get activity from context object
      * @param context something
@@ -65,7 +86,9 @@ public class NineGridUtil {
     }
 
     /**
-     * 将毫秒数格式化为"##:##"的时间
+     * 将毫秒数格式化为"##:##"的时间，每次调用都会创建新的字符串，没有缓存
+     * updateProgress中需要改为使用控制器的{@link NineGridVideoPlayerController#mPositionFormatter}
+     * 和{@link NineGridVideoPlayerController#mDurationFormatter}，秒数不变时才不会创建字符串
      *
      * @param milliseconds 毫秒数
      * @return ##:##
@@ -74,17 +97,31 @@ public class NineGridUtil {
         if (milliseconds <= 0 || milliseconds >= 24 * 60 * 60 * 1000) {
             return "00:00";
         }
-        long totalSeconds = milliseconds / 1000;
-        long seconds = totalSeconds % 60;
-        long minutes = (totalSeconds / 60) % 60;
-        long hours = totalSeconds / 3600;
-        StringBuilder stringBuilder = new StringBuilder();
-        Formatter mFormatter = new Formatter(stringBuilder, Locale.getDefault());
+        StringBuilder builder = new StringBuilder(8);
+        formatTime(milliseconds, builder);
+        return builder.toString();
+    }
+
+    /**
+     * 将毫秒数格式化为"##:##"的时间，直接追加到builder中，不创建对象
+     *
+     * @param milliseconds 毫秒数
+     * @param out 输出
+     */
+    public static void formatTime(long milliseconds, StringBuilder out) {
+        if (milliseconds <= 0 || milliseconds >= 24 * 60 * 60 * 1000) {
+            out.append("00:00");
+            return;
+        }
+        int totalSeconds = (int) (milliseconds / 1000);
+        int seconds = totalSeconds % 60;
+        int minutes = (totalSeconds / 60) % 60;
+        int hours = totalSeconds / 3600;
         if (hours > 0) {
-            return mFormatter.format("%d:%02d:%02d", hours, minutes, seconds).toString();
-        } else {
-            return mFormatter.format("%02d:%02d", minutes, seconds).toString();
+            out.append(hours).append(':');
         }
+        out.append((char) ('0' + minutes / 10)).append((char) ('0' + minutes % 10)).append(':');
+        out.append((char) ('0' + seconds / 10)).append((char) ('0' + seconds % 10));
     }
 
     /**
@@ -94,11 +131,7 @@ public class NineGridUtil {
      * @param url     视频链接url
      */
     static void savePlayPosition(Context context, String url, long position) {
-        context.getSharedPreferences("NINE_GRID__PALYER_PLAY_POSITION",
-                Context.MODE_PRIVATE)
-                .edit()
-                .putLong(url, position)
-                .apply();
+        NineGridPlayPositionStore.getInstance(context).put(url, position);
     }
 
     /**
@@ -109,28 +142,20 @@ public class NineGridUtil {
      * @return 上次保存的播放位置
      */
     static long getSavedPlayPosition(Context context, String url) {
-        return context.getSharedPreferences("NINE_GRID__PALYER_PLAY_POSITION",
-                Context.MODE_PRIVATE)
-                .getLong(url, 0);
+        return NineGridPlayPositionStore.getInstance(context).get(url);
     }
 
     /**
      * 设置播放是否静音
      */
     static void savePlayVolumeEnable(Context context, boolean enable) {
-        context.getSharedPreferences("NINE_GRID_VIDEO_PALYER_PLAY_POSITION",
-                Context.MODE_PRIVATE)
-                .edit()
-                .putBoolean("NINE_GRID_VIDEO_VOLUME_ENABLE", enable)
-                .apply();
+        NineGridPlayerSettings.getInstance(context).setVolumeEnable(enable);
     }
 
     /**
      * 取出播放是否静音
      */
     static boolean getSavedVolumeEnable(Context context) {
-        return context.getSharedPreferences("NINE_GRID__PALYER_PLAY_POSITION",
-                Context.MODE_PRIVATE)
-                .getBoolean("NINE_GRID_VIDEO_VOLUME_ENABLE", false);
+        return NineGridPlayerSettings.getInstance(context).isVolumeEnable();
     }
 }
@@ -0,0 +1,168 @@
+package com.realcloud.view.video.basecomponent;
+
+import android.graphics.Rect;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+/**
+ * 列表自动播放调度
+ * 列表停止滚动后播放可见比例最大的播放器，滚动过程中不切换，避免频繁创建和释放解码器
+ * 正在播放的播放器滑出可见范围时立即暂停
+ */
+public class NineGridVideoAutoPlayScheduler extends RecyclerView.OnScrollListener {
+
+    /**
+     * 默认自动播放需要的可见比例
+     */
+    public static final float DEFAULT_MIN_VISIBLE_FRACTION = 0.6f;
+    /**
+     * 默认停止滚动后等待的时间ms
+     */
+    public static final long DEFAULT_SETTLE_DELAY = 150;
+
+    /**
+     * 从列表条目中查找播放器
+     */
+    public interface PlayerFinder {
+
+        /**
+         * @param itemView 列表条目
+         * @return 条目中的播放器，没有时返回null
+         */
+        NineGridVideoPlayer findPlayer(View itemView);
+    }
+
+    private final RecyclerView mRecyclerView;
+    private final PlayerFinder mPlayerFinder;
+    private float mMinVisibleFraction = DEFAULT_MIN_VISIBLE_FRACTION;
+    private long mSettleDelay = DEFAULT_SETTLE_DELAY;
+    private boolean mPausedByScheduler; //当前播放器是否是调度暂停的，用户手动暂停的不自动恢复
+    private final Rect mVisibleRect = new Rect();
+
+    private final Runnable mScheduleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            schedule();
+        }
+    };
+
+    public NineGridVideoAutoPlayScheduler(RecyclerView recyclerView, PlayerFinder playerFinder) {
+        mRecyclerView = recyclerView;
+        mPlayerFinder = playerFinder;
+    }
+
+    /**
+     * 设置自动播放需要的可见比例
+     * @param minVisibleFraction 0~1
+     */
+    public void setMinVisibleFraction(float minVisibleFraction) {
+        mMinVisibleFraction = minVisibleFraction;
+    }
+
+    /**
+     * 设置停止滚动后等待的时间，等待期间再次滚动重新计时
+     * @param settleDelay 等待时间ms
+     */
+    public void setSettleDelay(long settleDelay) {
+        mSettleDelay = settleDelay;
+    }
+
+    /**
+     * 开始监听列表滚动
+     */
+    public void attach() {
+        mRecyclerView.addOnScrollListener(this);
+        requestSchedule();
+    }
+
+    /**
+     * 停止监听列表滚动
+     */
+    public void detach() {
+        mRecyclerView.removeOnScrollListener(this);
+        mRecyclerView.removeCallbacks(mScheduleRunnable);
+    }
+
+    /**
+     * 数据变化等情况需要重新选择播放器时调用
+     */
+    public void requestSchedule() {
+        mRecyclerView.removeCallbacks(mScheduleRunnable);
+        mRecyclerView.postDelayed(mScheduleRunnable, mSettleDelay);
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            requestSchedule();
+        } else {
+            mRecyclerView.removeCallbacks(mScheduleRunnable);
+        }
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        NineGridVideoPlayer current = NineGridVideoPlayerManager.getInstance().getCurrentNineGridVideoPlayer();
+        if (current != null && current.isNormal() && (current.isPlaying() || current.isBufferingPlaying())
+                && getVisibleFraction(current) < mMinVisibleFraction) {
+            current.pause();
+            mPausedByScheduler = true;
+        }
+        //代码触发的滚动没有滚动状态变化
+        if (recyclerView.getScrollState() == RecyclerView.SCROLL_STATE_IDLE) {
+            requestSchedule();
+        }
+    }
+
+    /**
+     * 选择可见比例最大的播放器播放，已经在播放时不做任何操作
+     */
+    private void schedule() {
+        NineGridVideoPlayerManager manager = NineGridVideoPlayerManager.getInstance();
+        NineGridVideoPlayer current = manager.getCurrentNineGridVideoPlayer();
+        if (current != null && !current.isNormal()) {
+            //全屏和小窗口播放时不调度
+            return;
+        }
+        NineGridVideoPlayer best = null;
+        float bestFraction = mMinVisibleFraction;
+        for (int i = 0; i < mRecyclerView.getChildCount(); i++) {
+            NineGridVideoPlayer player = mPlayerFinder.findPlayer(mRecyclerView.getChildAt(i));
+            if (player == null) continue;
+            float fraction = getVisibleFraction(player);
+            if (fraction >= bestFraction && (best == null || fraction > bestFraction)) {
+                best = player;
+                bestFraction = fraction;
+            }
+        }
+        if (best == null) {
+            if (current != null && (current.isPlaying() || current.isBufferingPlaying())) {
+                current.pause();
+                mPausedByScheduler = true;
+            }
+            return;
+        }
+        if (best == current) {
+            if (mPausedByScheduler && (current.isPaused() || current.isBufferingPaused())) {
+                current.restart();
+            }
+            mPausedByScheduler = false;
+            return;
+        }
+        //开始播放时管理器会释放之前的播放器
+        mPausedByScheduler = false;
+        if (best.isIdle()) {
+            best.start();
+        } else if (best.isPaused() || best.isBufferingPaused()) {
+            best.restart();
+        }
+    }
+
+    private float getVisibleFraction(View view) {
+        int area = view.getWidth() * view.getHeight();
+        if (area <= 0 || !view.isShown() || !view.getLocalVisibleRect(mVisibleRect)) {
+            return 0;
+        }
+        return (float) mVisibleRect.width() * mVisibleRect.height() / area;
+    }
+}
@@ -0,0 +1,421 @@
+package com.realcloud.view.video.basecomponent;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 视频边播边缓存的本地代理
+ * 播放器请求http://127.0.0.1:port/url，代理从磁盘缓存读取已有的部分，剩余部分请求网络并写入缓存
+ * 支持Range请求，完整缓存后直接返回本地文件路径
+ */
+public class NineGridVideoCacheServer {
+
+    private static final String PROXY_HOST = "127.0.0.1";
+    private static final int MAX_CONNECTIONS = 8;
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int TIMEOUT = 15 * 1000;
+
+    //播放请求等待被取消的预缓存释放写入锁的最长时间，通常很快释放
+    private static final long WRITER_WAIT_TIME = 1000;
+
+    private final NineGridVideoDiskCache mDiskCache;
+    private ServerSocket mServerSocket;
+    private ExecutorService mExecutor;
+
+    public NineGridVideoCacheServer(NineGridVideoDiskCache diskCache) {
+        mDiskCache = diskCache;
+    }
+
+    public NineGridVideoDiskCache getDiskCache() {
+        return mDiskCache;
+    }
+
+    /**
+     * 启动代理
+     * @throws IOException 端口监听失败
+     */
+    public synchronized void start() throws IOException {
+        if (mServerSocket != null) return;
+        mServerSocket = new ServerSocket(0, MAX_CONNECTIONS, InetAddress.getByName(PROXY_HOST));
+        mExecutor = new ThreadPoolExecutor(MAX_CONNECTIONS + 1, MAX_CONNECTIONS + 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        ((ThreadPoolExecutor) mExecutor).allowCoreThreadTimeOut(true);
+        final ServerSocket serverSocket = mServerSocket;
+        final ExecutorService executor = mExecutor;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                acceptLoop(serverSocket, executor);
+            }
+        });
+    }
+
+    /**
+     * 停止代理，已经缓存的数据保留
+     */
+    public synchronized void shutdown() {
+        if (mServerSocket == null) return;
+        try {
+            mServerSocket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        mExecutor.shutdownNow();
+        mServerSocket = null;
+        mExecutor = null;
+    }
+
+    public synchronized boolean isRunning() {
+        return mServerSocket != null;
+    }
+
+    /**
+     * 获取播放使用的地址
+     * @param url 原始视频地址
+     * @return 完整缓存时返回本地文件路径，代理可用时返回代理地址，否则返回原地址
+     */
+    public String getProxyUrl(String url) {
+        if (url == null || !(url.startsWith("http://") || url.startsWith("https://"))) {
+            return url;
+        }
+        File complete = mDiskCache.getCompleteFile(NineGridVideoDiskCache.getKey(url));
+        if (complete.exists()) {
+            mDiskCache.touch(complete);
+            return complete.getAbsolutePath();
+        }
+        int port;
+        synchronized (this) {
+            if (mServerSocket == null) return url;
+            port = mServerSocket.getLocalPort();
+        }
+        try {
+            return "http://" + PROXY_HOST + ":" + port + "/" + URLEncoder.encode(url, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return url;
+        }
+    }
+
+    private void acceptLoop(ServerSocket serverSocket, ExecutorService executor) {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        handleSocket(socket);
+                    }
+                });
+            } catch (IOException e) {
+                //关闭代理时accept抛出异常
+            } catch (RuntimeException e) {
+                //线程池已经关闭
+                break;
+            }
+        }
+    }
+
+    private void handleSocket(Socket socket) {
+        try {
+            socket.setSoTimeout(TIMEOUT);
+            InputStream in = socket.getInputStream();
+            String requestLine = readLine(in);
+            if (requestLine == null) return;
+            String[] parts = requestLine.split(" ");
+            if (parts.length < 2 || parts[1].length() <= 1) return;
+            String url = URLDecoder.decode(parts[1].substring(1), "UTF-8");
+            //转发播放器的header，代理自己处理的header除外
+            Map<String, String> headers = new LinkedHashMap<>();
+            long rangeStart = 0;
+            long rangeEnd = -1;
+            boolean hasRange = false;
+            String line;
+            while ((line = readLine(in)) != null && line.length() > 0) {
+                int index = line.indexOf(':');
+                if (index <= 0) continue;
+                String name = line.substring(0, index).trim();
+                String value = line.substring(index + 1).trim();
+                if ("Range".equalsIgnoreCase(name) && value.startsWith("bytes=")) {
+                    String[] range = value.substring(6).split("-", -1);
+                    try {
+                        rangeStart = range[0].length() > 0 ? Long.parseLong(range[0]) : 0;
+                        rangeEnd = range.length > 1 && range[1].length() > 0 ? Long.parseLong(range[1]) : -1;
+                        hasRange = true;
+                    } catch (NumberFormatException e) {
+                        rangeStart = 0;
+                        rangeEnd = -1;
+                    }
+                } else if (!"Host".equalsIgnoreCase(name) && !"Connection".equalsIgnoreCase(name)
+                        && !"Accept-Encoding".equalsIgnoreCase(name)) {
+                    headers.put(name, value);
+                }
+            }
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            serve(url, headers, rangeStart, rangeEnd, hasRange, out);
+            out.flush();
+        } catch (IOException e) {
+            //播放器主动断开连接，seek或者释放时很常见
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 返回请求的数据，先读缓存再读网络
+     */
+    private void serve(String url, Map<String, String> headers, long rangeStart, long rangeEnd,
+                       boolean hasRange, OutputStream out) throws IOException {
+        String key = NineGridVideoDiskCache.getKey(url);
+        File complete = mDiskCache.getCompleteFile(key);
+        if (complete.exists()) {
+            mDiskCache.touch(complete);
+            long total = complete.length();
+            if (rangeStart >= total) {
+                writeRangeNotSatisfiable(out, total);
+                return;
+            }
+            long end = rangeEnd >= 0 ? Math.min(rangeEnd, total - 1) : total - 1;
+            writeResponseHeader(out, hasRange, rangeStart, end, total, guessContentType(url));
+            copyFromFile(complete, rangeStart, end + 1, out);
+            return;
+        }
+        File temp = mDiskCache.getTempFile(key);
+        boolean writer;
+        if (rangeStart <= temp.length()) {
+            //可以接着已缓存部分写入，等待被取消的预缓存释放写入锁
+            try {
+                writer = mDiskCache.lockWriter(key, WRITER_WAIT_TIME);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                writer = false;
+            }
+        } else {
+            //拖动或者读取文件末尾，不会写入缓存，不等待
+            writer = mDiskCache.lockWriter(key);
+        }
+        HttpURLConnection connection = null;
+        RandomAccessFile cacheFile = null;
+        try {
+            //已经写入的部分不会再变化，可以直接读取
+            long cachedLength = temp.length();
+            long total = mDiskCache.getContentLength(key);
+            long fileEnd = Math.min(cachedLength, rangeEnd >= 0 ? rangeEnd + 1 : cachedLength);
+            long networkStart = Math.max(rangeStart, cachedLength);
+            //请求的范围全部在已缓存部分中时不需要网络，总长度只保存在内存中，重启后未知
+            boolean inCache = rangeEnd >= 0 && rangeEnd < cachedLength;
+            boolean needNetwork = !inCache && (total < 0 || (networkStart < total && (rangeEnd < 0 || networkStart <= rangeEnd)));
+            InputStream networkIn = null;
+            String contentType = null;
+            if (needNetwork) {
+                connection = openConnection(url, headers, networkStart);
+                int code = connection.getResponseCode();
+                if (code == HttpURLConnection.HTTP_PARTIAL) {
+                    total = parseTotalLength(connection.getHeaderField("Content-Range"));
+                    networkIn = connection.getInputStream();
+                } else if (code == HttpURLConnection.HTTP_OK) {
+                    total = connection.getContentLength();
+                    networkIn = connection.getInputStream();
+                    skipFully(networkIn, networkStart);
+                } else if (code == 416) {
+                    total = parseTotalLength(connection.getHeaderField("Content-Range"));
+                } else {
+                    out.write(("HTTP/1.1 " + code + " " + connection.getResponseMessage() + "\r\nConnection: close\r\n\r\n").getBytes());
+                    return;
+                }
+                contentType = connection.getContentType();
+                mDiskCache.putContentLength(key, total);
+            }
+            if (total > 0 && rangeStart >= total) {
+                writeRangeNotSatisfiable(out, total);
+                return;
+            }
+            long end = rangeEnd >= 0 ? (total > 0 ? Math.min(rangeEnd, total - 1) : rangeEnd) : total - 1;
+            writeResponseHeader(out, hasRange, rangeStart, end, total,
+                    contentType != null ? contentType : guessContentType(url));
+            if (rangeStart < fileEnd) {
+                copyFromFile(temp, rangeStart, fileEnd, out);
+            }
+            //结束位置已知时只读取剩余的长度，没有剩余时不读取，避免写出超过Content-Length的数据
+            if (networkIn != null && (end < 0 || end + 1 > networkStart)) {
+                long length = end >= 0 ? end + 1 - networkStart : -1;
+                //只有和已缓存部分连续时才写入缓存
+                if (writer && networkStart == cachedLength) {
+                    cacheFile = new RandomAccessFile(temp, "rw");
+                    cacheFile.seek(cachedLength);
+                }
+                transfer(networkIn, length, out, cacheFile);
+            }
+        } finally {
+            if (cacheFile != null) {
+                try {
+                    cacheFile.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            if (connection != null) {
+                connection.disconnect();
+            }
+            if (writer) {
+                finishWrite(key);
+            }
+        }
+    }
+
+    /**
+     * 写入完成，数据完整时提交缓存
+     */
+    void finishWrite(String key) {
+        long total = mDiskCache.getContentLength(key);
+        File temp = mDiskCache.getTempFile(key);
+        mDiskCache.unlockWriter(key);
+        if (total > 0 && temp.length() >= total) {
+            mDiskCache.commit(key);
+        } else {
+            mDiskCache.trim();
+        }
+    }
+
+    /**
+     * 请求网络数据
+     * @param start 开始位置
+     */
+    HttpURLConnection openConnection(String url, Map<String, String> headers, long start) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(TIMEOUT);
+        connection.setReadTimeout(TIMEOUT);
+        if (headers != null) {
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                connection.setRequestProperty(entry.getKey(), entry.getValue());
+            }
+        }
+        if (start > 0) {
+            connection.setRequestProperty("Range", "bytes=" + start + "-");
+        }
+        return connection;
+    }
+
+    /**
+     * 复制数据，同时写入客户端和缓存文件
+     * @param length 复制的长度，-1表示读到结束
+     * @param out 客户端，客户端断开后停止
+     * @param cacheFile 缓存文件，可以为空
+     */
+    private void transfer(InputStream in, long length, OutputStream out, RandomAccessFile cacheFile) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long remaining = length;
+        while (remaining != 0) {
+            int count = in.read(buffer, 0, remaining > 0 ? (int) Math.min(buffer.length, remaining) : buffer.length);
+            if (count < 0) break;
+            if (cacheFile != null) {
+                cacheFile.write(buffer, 0, count);
+            }
+            out.write(buffer, 0, count);
+            if (remaining > 0) {
+                remaining -= count;
+            }
+        }
+    }
+
+    private void copyFromFile(File file, long start, long end, OutputStream out) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            input.seek(start);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = end - start;
+            while (remaining > 0) {
+                int count = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (count < 0) break;
+                out.write(buffer, 0, count);
+                remaining -= count;
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    private void writeResponseHeader(OutputStream out, boolean partial, long start, long end, long total,
+                                     String contentType) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        builder.append(partial ? "HTTP/1.1 206 Partial Content\r\n" : "HTTP/1.1 200 OK\r\n");
+        builder.append("Accept-Ranges: bytes\r\n");
+        builder.append("Content-Type: ").append(contentType).append("\r\n");
+        if (end >= start) {
+            builder.append("Content-Length: ").append(end - start + 1).append("\r\n");
+            if (partial) {
+                //总长度未知时使用*
+                builder.append("Content-Range: bytes ").append(start).append('-').append(end)
+                        .append('/').append(total > 0 ? String.valueOf(total) : "*").append("\r\n");
+            }
+        }
+        builder.append("Connection: close\r\n\r\n");
+        out.write(builder.toString().getBytes());
+    }
+
+    private void writeRangeNotSatisfiable(OutputStream out, long total) throws IOException {
+        out.write(("HTTP/1.1 416 Range Not Satisfiable\r\nContent-Range: bytes */" + total
+                + "\r\nConnection: close\r\n\r\n").getBytes());
+    }
+
+    /**
+     * 从Content-Range中解析总长度，如 bytes 0-99/1000
+     */
+    static long parseTotalLength(String contentRange) {
+        if (contentRange == null) return -1;
+        int index = contentRange.lastIndexOf('/');
+        if (index < 0) return -1;
+        try {
+            return Long.parseLong(contentRange.substring(index + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String guessContentType(String url) {
+        String contentType = URLConnection.guessContentTypeFromName(url);
+        return contentType != null ? contentType : "video/mp4";
+    }
+
+    static void skipFully(InputStream in, long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                if (in.read() < 0) throw new IOException("unexpected end of stream");
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0) {
+            if (c == '\n') break;
+            if (c != '\r') builder.append((char) c);
+        }
+        return c < 0 && builder.length() == 0 ? null : builder.toString();
+    }
+}
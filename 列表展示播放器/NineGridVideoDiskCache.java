@@ -0,0 +1,193 @@
+package com.realcloud.view.video.basecomponent;
+
+import com.realcloud.view.NineGridCacheUtil;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 视频磁盘缓存
+ * 每个视频对应一个文件，文件名为url的md5
+ * 下载中的文件带有.download后缀，只保存从0开始连续的数据，下载完整后去掉后缀
+ * 总大小超出限制时按最近使用时间删除
+ */
+public class NineGridVideoDiskCache {
+
+    /**
+     * 默认缓存大小
+     */
+    public static final long DEFAULT_MAX_SIZE = 512L * 1024 * 1024;
+
+    private static final String TEMP_SUFFIX = ".download";
+
+    private final File mDirectory;
+    private final long mMaxSize;
+    //正在写入的key，同一个视频同时只有一个写入者
+    private final Set<String> mWriters = new HashSet<>();
+    //写入者已经被取消、即将释放的key，只有这些key值得等待
+    private final Set<String> mReleasingWriters = new HashSet<>();
+    //视频总长度，请求网络时记录
+    private final Map<String, Long> mContentLengths = new ConcurrentHashMap<>();
+    //正在写入的文件不删除，在trim的锁内使用
+    private final FilenameFilter mWriterFilter = new FilenameFilter() {
+        @Override
+        public boolean accept(File dir, String name) {
+            String key = name.endsWith(TEMP_SUFFIX) ? name.substring(0, name.length() - TEMP_SUFFIX.length()) : name;
+            return mWriters.contains(key);
+        }
+    };
+
+    public NineGridVideoDiskCache(File directory) {
+        this(directory, DEFAULT_MAX_SIZE);
+    }
+
+    public NineGridVideoDiskCache(File directory, long maxSize) {
+        mDirectory = directory;
+        mMaxSize = maxSize;
+        if (!mDirectory.exists()) {
+            mDirectory.mkdirs();
+        }
+    }
+
+    /**
+     * 获取url对应的缓存key
+     * @param url 视频地址
+     * @return url的md5
+     */
+    static String getKey(String url) {
+        return NineGridCacheUtil.getKey(url);
+    }
+
+    /**
+     * 下载完整的缓存文件
+     */
+    File getCompleteFile(String key) {
+        return new File(mDirectory, key);
+    }
+
+    /**
+     * 下载中的缓存文件
+     */
+    File getTempFile(String key) {
+        return new File(mDirectory, key + TEMP_SUFFIX);
+    }
+
+    /**
+     * 是否已经完整缓存
+     * @param url 视频地址
+     */
+    public boolean isCached(String url) {
+        return getCompleteFile(getKey(url)).exists();
+    }
+
+    /**
+     * 获取已经缓存的长度
+     * @param url 视频地址
+     * @return 已缓存的字节数
+     */
+    public long getCachedLength(String url) {
+        String key = getKey(url);
+        File complete = getCompleteFile(key);
+        return complete.exists() ? complete.length() : getTempFile(key).length();
+    }
+
+    /**
+     * 尝试成为写入者
+     * @return 已经有其他写入者时返回false
+     */
+    synchronized boolean lockWriter(String key) {
+        return mWriters.add(key);
+    }
+
+    /**
+     * 尝试成为写入者，当前写入者正在释放时最多等待一段时间，其他情况不等待
+     * @param timeout 最长等待时间ms
+     * @return 没有得到写入锁时返回false
+     */
+    synchronized boolean lockWriter(String key, long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (!mWriters.add(key)) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0 || !mReleasingWriters.contains(key)) return false;
+            wait(remaining);
+        }
+        return true;
+    }
+
+    /**
+     * 标记当前写入者已经被取消，即将释放写入锁
+     */
+    synchronized void markWriterReleasing(String key) {
+        if (mWriters.contains(key)) {
+            mReleasingWriters.add(key);
+        }
+    }
+
+    synchronized void unlockWriter(String key) {
+        mWriters.remove(key);
+        mReleasingWriters.remove(key);
+        notifyAll();
+    }
+
+    long getContentLength(String key) {
+        Long length = mContentLengths.get(key);
+        return length != null ? length : -1;
+    }
+
+    void putContentLength(String key, long length) {
+        if (length > 0) {
+            mContentLengths.put(key, length);
+        }
+    }
+
+    /**
+     * 下载完整后去掉临时后缀
+     */
+    void commit(String key) {
+        File temp = getTempFile(key);
+        if (temp.renameTo(getCompleteFile(key))) {
+            mContentLengths.remove(key);
+        }
+        trim();
+    }
+
+    /**
+     * 更新使用时间
+     */
+    void touch(File file) {
+        file.setLastModified(System.currentTimeMillis());
+    }
+
+    /**
+     * 删除最久没有使用的文件直到总大小不超过限制，正在写入的文件不删除
+     */
+    synchronized void trim() {
+        NineGridCacheUtil.trim(mDirectory, mMaxSize, mWriterFilter);
+    }
+
+    /**
+     * 当前缓存的总大小
+     */
+    public long getSize() {
+        return NineGridCacheUtil.getSize(mDirectory);
+    }
+
+    /**
+     * 清空缓存，正在写入的文件不删除
+     */
+    public synchronized void clear() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            String name = file.getName();
+            String key = name.endsWith(TEMP_SUFFIX) ? name.substring(0, name.length() - TEMP_SUFFIX.length()) : name;
+            if (!mWriters.contains(key)) {
+                file.delete();
+            }
+        }
+    }
+}
@@ -6,7 +6,6 @@ import android.graphics.SurfaceTexture;
 import android.media.AudioManager;
 import android.net.Uri;
 import android.os.Build;
-import android.os.PowerManager;
 import android.util.AttributeSet;
 import android.view.Gravity;
 import android.view.Surface;
@@ -18,7 +17,6 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
-import tv.danmaku.ijk.media.player.AndroidMediaPlayer;
 import tv.danmaku.ijk.media.player.IMediaPlayer;
 import tv.danmaku.ijk.media.player.IjkMediaPlayer;
 
@@ -30,6 +28,8 @@ public class NineGridVideoPlayer extends FrameLayout implements INineGridVideoPl
 
     private int mPlayerType = TYPE_IJK;
     private boolean loopPlay = false;
+    private boolean isLoopSet; //是否单独设置过循环播放，没有设置时使用全局设置
+    private float mSpeed; //单独设置的播放速度，0表示使用全局设置
     private int mCurrentState = STATE_IDLE;
     private int mCurrentMode = MODE_NORMAL;
 
@@ -47,6 +47,7 @@ public class NineGridVideoPlayer extends FrameLayout implements INineGridVideoPl
     private boolean continueFromLastPosition = true;
     private long skipToPosition;
     private boolean isVolumeEnable; //音量是否打开
+    private NineGridVideoPlayerManager.PreloadedPlayer mPreloadedPlayer; //预加载好的播放器，绑定surface后使用
 
     public NineGridVideoPlayer(Context context) {
         this(context, null);
@@ -59,6 +60,8 @@ public class NineGridVideoPlayer extends FrameLayout implements INineGridVideoPl
     }
 
     private void init(Context context) {
+        // 提前在后台加载播放位置
+        NineGridPlayPositionStore.getInstance(context);
         isVolumeEnable = NineGridUtil.getSavedVolumeEnable(context);
         mContainer = new NineGridDragFrameLayout(mContext);
         LayoutParams params = new LayoutParams(
@@ -129,6 +132,7 @@ public class NineGridVideoPlayer extends FrameLayout implements INineGridVideoPl
     @Override
     public void setLoop(boolean loop) {
         loopPlay = loop;
+        isLoopSet = true;
     }
 
     /**
@@ -143,6 +147,7 @@ public class NineGridVideoPlayer extends FrameLayout implements INineGridVideoPl
 
     @Override
     public void setSpeed(float speed) {
+        mSpeed = speed;
         if (mMediaPlayer instanceof IjkMediaPlayer) {
             ((IjkMediaPlayer) mMediaPlayer).setSpeed(speed);
         }
@@ -363,32 +368,11 @@ public class NineGridVideoPlayer extends FrameLayout implements INineGridVideoPl
 
     private void initMediaPlayer() {
         if (mMediaPlayer == null) {
-            switch (mPlayerType) {
-                case TYPE_NATIVE:
-                    mMediaPlayer = new AndroidMediaPlayer();
-                    break;
-                case TYPE_IJK:
-                default:
-                    mMediaPlayer = new IjkMediaPlayer(getContext());
-                    ((IjkMediaPlayer)mMediaPlayer).setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "overlay-format", 842225234L);
-                    ((IjkMediaPlayer)mMediaPlayer).setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "framedrop", 12L);
-                    ((IjkMediaPlayer)mMediaPlayer).setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "start-on-prepared", 1L);
-                    ((IjkMediaPlayer)mMediaPlayer).setOption(IjkMediaPlayer.OPT_CATEGORY_FORMAT, "http-detect-range-support", 0L);
-                    ((IjkMediaPlayer)mMediaPlayer).setOption(IjkMediaPlayer.OPT_CATEGORY_CODEC, "skip_loop_filter", 0L);
-                    ((IjkMediaPlayer)mMediaPlayer).setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "max_cached_duration", 0);
-                    ((IjkMediaPlayer)mMediaPlayer).setOption(IjkMediaPlayer.OPT_CATEGORY_FORMAT, "analyzeduration", 0L);
-                    ((IjkMediaPlayer)mMediaPlayer).setOption(IjkMediaPlayer.OPT_CATEGORY_FORMAT, "probesize", 131072L);
-                    ((IjkMediaPlayer)mMediaPlayer).setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "live-streaming", 0);
-                    ((IjkMediaPlayer)mMediaPlayer).setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "get-av-frame-timeout", 10000000L);
-                    ((IjkMediaPlayer)mMediaPlayer).setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "mediacodec", 0);
-                    ((IjkMediaPlayer)mMediaPlayer).setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "delay-optimization", 0L);
-                    ((IjkMediaPlayer)mMediaPlayer).setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "cache-buffer-duration", 2000L);
-                    ((IjkMediaPlayer)mMediaPlayer).setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "max-cache-buffer-duration", 4000L);
-                    ((IjkMediaPlayer)mMediaPlayer).setOption(IjkMediaPlayer.OPT_CATEGORY_FORMAT, "reconnect", 1L);
-                    ((IjkMediaPlayer)mMediaPlayer).setWakeMode(getContext().getApplicationContext(), PowerManager.PARTIAL_WAKE_LOCK);
-                    break;
-            }
-            mMediaPlayer.setAudioStreamType(AudioManager.STREAM_MUSIC);
+            // 构造时全局设置可能还没有加载完成
+            isVolumeEnable = NineGridUtil.getSavedVolumeEnable(getContext());
+            mPreloadedPlayer = NineGridVideoPlayerManager.getInstance().takePreloadedPlayer(mUrl, mPlayerType);
+            mMediaPlayer = mPreloadedPlayer != null ? mPreloadedPlayer.mediaPlayer
+                    : NineGridVideoPlayerManager.getInstance().obtainMediaPlayer(getContext(), mPlayerType);
             mMediaPlayer.setVolume(isVolumeEnable?1f:0f,isVolumeEnable?1f:0f);
         }
     }
@@ -425,10 +409,33 @@ public class NineGridVideoPlayer extends FrameLayout implements INineGridVideoPl
         mMediaPlayer.setOnErrorListener(mOnErrorListener);
         mMediaPlayer.setOnInfoListener(mOnInfoListener);
         mMediaPlayer.setOnBufferingUpdateListener(mOnBufferingUpdateListener);
-        mMediaPlayer.setLooping(loopPlay);
-        // 设置dataSource
+        mMediaPlayer.setLooping(isLoopSet ? loopPlay : NineGridPlayerSettings.getInstance(mContext).isLoop());
+        // 使用预加载的播放器，不需要重新设置dataSource
+        if (mPreloadedPlayer != null) {
+            boolean prepared = mPreloadedPlayer.prepared;
+            mPreloadedPlayer = null;
+            if (mSurface == null) {
+                mSurface = new Surface(mSurfaceTexture);
+            }
+            mMediaPlayer.setSurface(mSurface);
+            if (prepared) {
+                if (mMediaPlayer.getVideoWidth() > 0 && mMediaPlayer.getVideoHeight() > 0) {
+                    mTextureView.adaptVideoSize(mMediaPlayer.getVideoWidth(), mMediaPlayer.getVideoHeight());
+                }
+                mOnPreparedListener.onPrepared(mMediaPlayer);
+            } else {
+                mCurrentState = STATE_PREPARING;
+                if (mController != null){
+                    mController.onPlayStateChanged(mCurrentState);
+                }
+            }
+            return;
+        }
+        // 设置dataSource，开始播放后由代理继续写入缓存
+        NineGridVideoPlayerManager.getInstance().cancelPrefetchVideo(mUrl);
         try {
-            mMediaPlayer.setDataSource(mContext.getApplicationContext(), Uri.parse(mUrl),
+            mMediaPlayer.setDataSource(mContext.getApplicationContext(),
+                    Uri.parse(NineGridVideoPlayerManager.getInstance().getPlayUrl(mUrl)),
                     mHeaders != null ?mHeaders : new HashMap<String, String>());
             if (mSurface == null) {
                 mSurface = new Surface(mSurfaceTexture);
@@ -466,6 +473,10 @@ public class NineGridVideoPlayer extends FrameLayout implements INineGridVideoPl
                 mController.onPlayStateChanged(mCurrentState);
             }
             mp.start();
+            float speed = mSpeed > 0 ? mSpeed : NineGridPlayerSettings.getInstance(mContext).getSpeed();
+            if (speed != 1f && mp instanceof IjkMediaPlayer) {
+                ((IjkMediaPlayer) mp).setSpeed(speed);
+            }
             // 从上次的保存位置播放
             if (continueFromLastPosition) {
                 long savedPlayPosition = NineGridUtil.getSavedPlayPosition(mContext, mUrl);
@@ -708,8 +719,10 @@ public class NineGridVideoPlayer extends FrameLayout implements INineGridVideoPl
             mAudioManager = null;
         }
         if (mMediaPlayer != null) {
-            mMediaPlayer.release();
+            // 在释放线程reset，不阻塞主线程
+            NineGridVideoPlayerManager.getInstance().recycleMediaPlayer(mMediaPlayer);
             mMediaPlayer = null;
+            mPreloadedPlayer = null;
         }
         mContainer.removeView(mTextureView);
         if (mSurface != null) {
@@ -751,6 +764,5 @@ public class NineGridVideoPlayer extends FrameLayout implements INineGridVideoPl
             mController.reset();
             mController.cancelUpdateProgressTimer();
         }
-        Runtime.getRuntime().gc();
     }
 }
@@ -6,9 +6,6 @@ import android.view.View;
 import android.view.WindowManager;
 import android.widget.FrameLayout;
 
-import java.util.Timer;
-import java.util.TimerTask;
-
 /**
  * 控制器抽象类
  * 只是用于展示覆盖在播放视频界面上的用于控制播放视频的按钮等
@@ -18,8 +15,8 @@ public abstract class NineGridVideoPlayerController  extends FrameLayout {
     protected Context mContext;
     protected INineGridVideoPlayer mNineGridVideoPlayer;
 
-    private Timer mUpdateProgressTimer;
-    private TimerTask mUpdateProgressTimerTask;
+    private boolean mUpdateProgressEnabled; //是否需要更新进度
+    private boolean mAttached; //是否添加到窗口
 
     private float mDownX;
     private float mDownY;
@@ -32,6 +29,11 @@ public abstract class NineGridVideoPlayerController  extends FrameLayout {
     private int mGestureDownVolume;
     private long mNewPosition;
 
+    //updateProgress中分别格式化当前位置和总时长，各自缓存上一次的结果
+    //子类需要用它们代替NineGridUtil.formatTime(long)，否则每次更新进度仍会创建字符串
+    protected final NineGridTimeFormatter mPositionFormatter = new NineGridTimeFormatter();
+    protected final NineGridTimeFormatter mDurationFormatter = new NineGridTimeFormatter();
+
     public NineGridVideoPlayerController(Context context) {
         super(context);
         mContext = context;
@@ -78,43 +80,40 @@ public abstract class NineGridVideoPlayerController  extends FrameLayout {
     protected abstract void reset();
 
     /**
-     * 开启更新进度的计时器。
+     * 开启更新进度的计时器，使用共用的{@link NineGridProgressTicker}，从窗口移除时暂停。
      */
     protected void startUpdateProgressTimer() {
-        cancelUpdateProgressTimer();
-        if (mUpdateProgressTimer == null) {
-            mUpdateProgressTimer = new Timer();
-        }
-        if (mUpdateProgressTimerTask == null) {
-            mUpdateProgressTimerTask = new TimerTask() {
-                @Override
-                public void run() {
-                    NineGridVideoPlayerController.this.post(new Runnable() {
-                        @Override
-                        public void run() {
-                            updateProgress();
-                        }
-                    });
-                }
-            };
+        mUpdateProgressEnabled = true;
+        if (mAttached) {
+            NineGridProgressTicker.getInstance().register(this);
         }
-        mUpdateProgressTimer.schedule(mUpdateProgressTimerTask, 0, 1000);
     }
 
     /**
      * 取消更新进度的计时器。
      */
     protected void cancelUpdateProgressTimer() {
-        if (mUpdateProgressTimer != null) {
-            mUpdateProgressTimer.cancel();
-            mUpdateProgressTimer = null;
-        }
-        if (mUpdateProgressTimerTask != null) {
-            mUpdateProgressTimerTask.cancel();
-            mUpdateProgressTimerTask = null;
+        mUpdateProgressEnabled = false;
+        NineGridProgressTicker.getInstance().unregister(this);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mAttached = true;
+        //全屏、小窗口切换时会重新添加到窗口
+        if (mUpdateProgressEnabled) {
+            NineGridProgressTicker.getInstance().register(this);
         }
     }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mAttached = false;
+        NineGridProgressTicker.getInstance().unregister(this);
+    }
+
     /**
      * 更新进度，包括进度条进度，展示的当前播放位置时长，总时长等。
      */
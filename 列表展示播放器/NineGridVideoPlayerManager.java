@@ -1,5 +1,15 @@
 package com.realcloud.view.video.basecomponent;
 
+import android.content.Context;
+import android.net.Uri;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import tv.danmaku.ijk.media.player.IMediaPlayer;
+import tv.danmaku.ijk.media.player.IjkMediaPlayer;
+
 /**
  * 视频播放器管理器.
  */
@@ -7,6 +17,14 @@ public class NineGridVideoPlayerManager {
 
     private NineGridVideoPlayer mVideoPlayer;
 
+    private final NineGridMediaPlayerPool mMediaPlayerPool = new NineGridMediaPlayerPool();
+
+    private PreloadedPlayer mPreloadedPlayer; //预加载中的下一个视频
+
+    private NineGridVideoCacheServer mCacheServer; //边播边缓存的本地代理，可以为空
+
+    private NineGridVideoPrefetcher mVideoPrefetcher; //视频预缓存，设置缓存代理后可用
+
     private NineGridVideoPlayerManager() {
     }
 
@@ -49,6 +67,195 @@ public class NineGridVideoPlayerManager {
         }
     }
 
+    /**
+     * 从播放器池中获取播放器，池中没有时新建
+     */
+    public IMediaPlayer obtainMediaPlayer(Context context, int playerType) {
+        return mMediaPlayerPool.acquire(context, playerType);
+    }
+
+    /**
+     * 归还播放器到播放器池
+     */
+    public void recycleMediaPlayer(IMediaPlayer mediaPlayer) {
+        mMediaPlayerPool.recycle(mediaPlayer);
+    }
+
+    /**
+     * 设置播放器池的大小，0表示不缓存
+     */
+    public void setMediaPlayerPoolSize(int size) {
+        mMediaPlayerPool.setMaxSize(size);
+    }
+
+    /**
+     * 预先创建播放器，第一次播放时也不需要等待创建
+     */
+    public void warmUpMediaPlayers(Context context, int playerType, int count) {
+        mMediaPlayerPool.warmUp(context, playerType, count);
+    }
+
+    /**
+     * 释放播放器池中的所有播放器以及预加载的播放器，页面退出时调用
+     */
+    public void clearMediaPlayerPool() {
+        cancelPreload();
+        mMediaPlayerPool.clear();
+    }
+
+    /**
+     * 预加载下一个视频，不绑定surface提前prepare，播放该url时直接使用
+     * @param context 上下文
+     * @param url 视频地址
+     * @param headers 请求header
+     */
+    public void preload(Context context, String url, Map<String, String> headers) {
+        preload(context, url, headers, INineGridVideoPlayer.TYPE_IJK);
+    }
+
+    /**
+     * 预加载下一个视频，不绑定surface提前prepare，播放该url时直接使用
+     * @param context 上下文
+     * @param url 视频地址
+     * @param headers 请求header
+     * @param playerType 播放器类型，需要和播放时的类型一致
+     */
+    public void preload(Context context, String url, Map<String, String> headers, int playerType) {
+        if (url == null) return;
+        if (mPreloadedPlayer != null && url.equals(mPreloadedPlayer.url) && mPreloadedPlayer.playerType == playerType) {
+            return;
+        }
+        cancelPreload();
+        final PreloadedPlayer preloadedPlayer = new PreloadedPlayer(url, playerType, obtainMediaPlayer(context, playerType));
+        IMediaPlayer mediaPlayer = preloadedPlayer.mediaPlayer;
+        if (mediaPlayer instanceof IjkMediaPlayer) {
+            //没有surface时不能自动开始播放
+            ((IjkMediaPlayer) mediaPlayer).setOption(IjkMediaPlayer.OPT_CATEGORY_PLAYER, "start-on-prepared", 0L);
+        }
+        mediaPlayer.setOnPreparedListener(new IMediaPlayer.OnPreparedListener() {
+            @Override
+            public void onPrepared(IMediaPlayer mp) {
+                preloadedPlayer.prepared = true;
+            }
+        });
+        mediaPlayer.setOnErrorListener(new IMediaPlayer.OnErrorListener() {
+            @Override
+            public boolean onError(IMediaPlayer mp, int what, int extra) {
+                preloadedPlayer.error = true;
+                return true;
+            }
+        });
+        try {
+            //开始播放后由代理继续写入缓存
+            cancelPrefetchVideo(url);
+            mediaPlayer.setDataSource(context.getApplicationContext(), Uri.parse(getPlayUrl(url)),
+                    headers != null ? headers : new HashMap<String, String>());
+            mediaPlayer.prepareAsync();
+            mPreloadedPlayer = preloadedPlayer;
+        } catch (IOException e) {
+            e.printStackTrace();
+            recycleMediaPlayer(mediaPlayer);
+        }
+    }
+
+    /**
+     * 取消预加载，预加载的播放器归还到播放器池
+     */
+    public void cancelPreload() {
+        if (mPreloadedPlayer != null) {
+            recycleMediaPlayer(mPreloadedPlayer.mediaPlayer);
+            mPreloadedPlayer = null;
+        }
+    }
+
+    /**
+     * 取出对应url的预加载播放器
+     * @return 没有预加载或者预加载出错时返回null
+     */
+    PreloadedPlayer takePreloadedPlayer(String url, int playerType) {
+        if (mPreloadedPlayer == null || !mPreloadedPlayer.url.equals(url) || mPreloadedPlayer.playerType != playerType) {
+            return null;
+        }
+        PreloadedPlayer preloadedPlayer = mPreloadedPlayer;
+        mPreloadedPlayer = null;
+        if (preloadedPlayer.error) {
+            recycleMediaPlayer(preloadedPlayer.mediaPlayer);
+            return null;
+        }
+        return preloadedPlayer;
+    }
+
+    /**
+     * 设置视频缓存代理，设置后网络视频边播边缓存，需要调用方先启动代理
+     * @param cacheServer 缓存代理，为空时直接播放网络地址
+     */
+    public void setVideoCacheServer(NineGridVideoCacheServer cacheServer) {
+        if (mVideoPrefetcher != null) {
+            mVideoPrefetcher.cancelAll();
+        }
+        mCacheServer = cacheServer;
+        mVideoPrefetcher = cacheServer != null ? new NineGridVideoPrefetcher(cacheServer) : null;
+    }
+
+    /**
+     * 自定义视频预缓存，可以修改同时下载数量，需要使用当前的缓存代理创建
+     * @param videoPrefetcher 预缓存
+     */
+    public void setVideoPrefetcher(NineGridVideoPrefetcher videoPrefetcher) {
+        if (mVideoPrefetcher != null) {
+            mVideoPrefetcher.cancelAll();
+        }
+        mVideoPrefetcher = videoPrefetcher;
+    }
+
+    public NineGridVideoPrefetcher getVideoPrefetcher() {
+        return mVideoPrefetcher;
+    }
+
+    /**
+     * 预缓存即将播放的视频的开头部分，没有设置缓存代理时忽略
+     * @param url 视频地址
+     * @param headers 请求header
+     */
+    public void prefetchVideo(String url, Map<String, String> headers) {
+        if (mVideoPrefetcher != null) {
+            mVideoPrefetcher.prefetch(url, headers);
+        }
+    }
+
+    /**
+     * 取消预缓存，对应的条目滑出屏幕时调用
+     * @param url 视频地址
+     */
+    public void cancelPrefetchVideo(String url) {
+        if (mVideoPrefetcher != null) {
+            mVideoPrefetcher.cancel(url);
+        }
+    }
+
+    /**
+     * 取消所有预缓存
+     */
+    public void cancelAllPrefetchVideo() {
+        if (mVideoPrefetcher != null) {
+            mVideoPrefetcher.cancelAll();
+        }
+    }
+
+    public NineGridVideoCacheServer getVideoCacheServer() {
+        return mCacheServer;
+    }
+
+    /**
+     * 获取实际播放的地址，设置缓存代理时经过代理
+     * 开始播放前需要调用{@link #cancelPrefetchVideo}，由代理继续写入缓存
+     * @param url 视频地址
+     * @return 播放地址
+     */
+    public String getPlayUrl(String url) {
+        return mCacheServer != null ? mCacheServer.getProxyUrl(url) : url;
+    }
+
     public boolean onBackPressd() {
         if (mVideoPlayer != null) {
             if (mVideoPlayer.isLandscapeFullScreen() || mVideoPlayer.isProtraitFullScreen()) {
@@ -59,4 +266,22 @@ public class NineGridVideoPlayerManager {
         }
         return false;
     }
+
+    /**
+     * 预加载的播放器
+     */
+    static class PreloadedPlayer {
+
+        final String url;
+        final int playerType;
+        final IMediaPlayer mediaPlayer;
+        boolean prepared; //是否已经prepare完成
+        boolean error; //预加载是否出错
+
+        PreloadedPlayer(String url, int playerType, IMediaPlayer mediaPlayer) {
+            this.url = url;
+            this.playerType = playerType;
+            this.mediaPlayer = mediaPlayer;
+        }
+    }
 }
@@ -0,0 +1,230 @@
+package com.realcloud.view.video.basecomponent;
+
+import android.os.Process;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 视频预缓存
+ * 低优先级下载即将播放的视频的开头部分到磁盘缓存，播放时通过缓存代理直接读取
+ * 限制同时下载的数量和所有下载共用的带宽
+ */
+public class NineGridVideoPrefetcher {
+
+    /**
+     * 默认预缓存的大小
+     */
+    public static final long DEFAULT_PREFETCH_SIZE = 512 * 1024;
+    /**
+     * 默认同时下载的数量
+     */
+    public static final int DEFAULT_MAX_CONCURRENT = 2;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final NineGridVideoCacheServer mCacheServer;
+    private final ExecutorService mExecutor;
+    private final Map<String, PrefetchTask> mTasks = new ConcurrentHashMap<>();
+    private volatile long mPrefetchSize = DEFAULT_PREFETCH_SIZE;
+    //带宽限制，所有下载共用，小于等于0不限制
+    private long mBytesPerSecond;
+    private long mWindowStart;
+    private long mWindowBytes;
+
+    public NineGridVideoPrefetcher(NineGridVideoCacheServer cacheServer) {
+        this(cacheServer, DEFAULT_MAX_CONCURRENT);
+    }
+
+    public NineGridVideoPrefetcher(NineGridVideoCacheServer cacheServer, int maxConcurrent) {
+        mCacheServer = cacheServer;
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "NineGridVideoPrefetcher");
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        mExecutor = executor;
+    }
+
+    /**
+     * 设置每个视频预缓存的大小
+     * @param prefetchSize 字节数
+     */
+    public void setPrefetchSize(long prefetchSize) {
+        mPrefetchSize = prefetchSize;
+    }
+
+    /**
+     * 设置所有预缓存共用的带宽
+     * @param bytesPerSecond 每秒字节数，小于等于0不限制
+     */
+    public synchronized void setBandwidthLimit(long bytesPerSecond) {
+        mBytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * 预缓存视频开头部分，已经缓存足够或者正在下载时忽略
+     * @param url 视频地址
+     * @param headers 请求header
+     */
+    public void prefetch(String url, Map<String, String> headers) {
+        if (url == null || !(url.startsWith("http://") || url.startsWith("https://"))) return;
+        if (mTasks.containsKey(url)) return;
+        if (mCacheServer.getDiskCache().getCachedLength(url) >= mPrefetchSize) return;
+        PrefetchTask task = new PrefetchTask(url, headers, mPrefetchSize);
+        mTasks.put(url, task);
+        task.future = mExecutor.submit(task);
+    }
+
+    /**
+     * 取消预缓存，已经下载的部分保留
+     * @param url 视频地址
+     */
+    public void cancel(String url) {
+        if (url == null) return;
+        PrefetchTask task = mTasks.remove(url);
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * 取消所有预缓存，列表快速滑动离开时调用
+     */
+    public void cancelAll() {
+        for (String url : mTasks.keySet()) {
+            cancel(url);
+        }
+    }
+
+    /**
+     * 占用带宽，超出限制时等待到下一秒
+     */
+    private void acquireBandwidth(int bytes) throws InterruptedException {
+        long sleepTime;
+        synchronized (this) {
+            if (mBytesPerSecond <= 0) return;
+            long now = System.currentTimeMillis();
+            if (now - mWindowStart >= 1000) {
+                mWindowStart = now;
+                mWindowBytes = 0;
+            }
+            mWindowBytes += bytes;
+            sleepTime = mWindowBytes > mBytesPerSecond ? mWindowStart + 1000 - now : 0;
+        }
+        if (sleepTime > 0) {
+            Thread.sleep(sleepTime);
+        }
+    }
+
+    private class PrefetchTask implements Runnable {
+
+        private final String url;
+        private final Map<String, String> headers;
+        private final long size;
+        private volatile boolean cancelled;
+        private volatile boolean holdsWriter; //是否持有缓存写入锁
+        private volatile HttpURLConnection connection;
+        private Future<?> future;
+
+        PrefetchTask(String url, Map<String, String> headers, long size) {
+            this.url = url;
+            this.headers = headers;
+            this.size = size;
+        }
+
+        void cancel() {
+            cancelled = true;
+            if (holdsWriter) {
+                //让等待写入锁的播放请求知道锁即将释放
+                mCacheServer.getDiskCache().markWriterReleasing(NineGridVideoDiskCache.getKey(url));
+            }
+            if (future != null) {
+                future.cancel(true);
+            }
+            HttpURLConnection current = connection;
+            if (current != null) {
+                current.disconnect();
+            }
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            NineGridVideoDiskCache diskCache = mCacheServer.getDiskCache();
+            String key = NineGridVideoDiskCache.getKey(url);
+            //正在播放的视频由代理写入缓存
+            if (cancelled || diskCache.getCompleteFile(key).exists() || !diskCache.lockWriter(key)) {
+                mTasks.remove(url, this);
+                return;
+            }
+            holdsWriter = true;
+            if (cancelled) {
+                diskCache.markWriterReleasing(key);
+            }
+            RandomAccessFile cacheFile = null;
+            try {
+                File temp = diskCache.getTempFile(key);
+                long cachedLength = temp.length();
+                if (cachedLength >= size) return;
+                connection = mCacheServer.openConnection(url, headers, cachedLength);
+                if (cancelled) return;
+                int code = connection.getResponseCode();
+                InputStream in = connection.getInputStream();
+                if (code == HttpURLConnection.HTTP_PARTIAL) {
+                    diskCache.putContentLength(key, NineGridVideoCacheServer.parseTotalLength(connection.getHeaderField("Content-Range")));
+                } else if (code == HttpURLConnection.HTTP_OK) {
+                    diskCache.putContentLength(key, connection.getContentLength());
+                    NineGridVideoCacheServer.skipFully(in, cachedLength);
+                } else {
+                    return;
+                }
+                cacheFile = new RandomAccessFile(temp, "rw");
+                cacheFile.seek(cachedLength);
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long remaining = size - cachedLength;
+                while (remaining > 0 && !cancelled) {
+                    int count = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (count < 0) break;
+                    cacheFile.write(buffer, 0, count);
+                    remaining -= count;
+                    acquireBandwidth(count);
+                }
+            } catch (IOException e) {
+                //取消时断开连接会抛出异常
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (cacheFile != null) {
+                    try {
+                        cacheFile.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+                if (connection != null) {
+                    connection.disconnect();
+                }
+                holdsWriter = false;
+                mCacheServer.finishWrite(key);
+                mTasks.remove(url, this);
+            }
+        }
+    }
+}